@@ -0,0 +1,82 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+
+// default package side of bench.Workload, see there for why it exists
+
+public class GameWorkload implements bench.Workload {
+
+	private byte[] vertexFile;
+	private byte[] edgeFile;
+	private String network;
+	private String solver;
+	private Network<Node, Integer> solutionNetwork;
+	private HashSet<Integer> optimalCut;
+	private HashSet<Integer> partialCut;
+	private HashSet<Integer> noCut = new HashSet<Integer>();
+
+	public void generate(String shape, int size, long seed) {
+		String[] files = GraphGenerator.generate(shape, size, seed);
+		vertexFile = files[0].getBytes(StandardCharsets.UTF_8);
+		edgeFile = files[1].getBytes(StandardCharsets.UTF_8);
+	}
+
+	public void configure(String network, String solver) throws IOException {
+		this.network = network;
+		this.solver = solver;
+		solutionNetwork = newGame().getSolutionNetwork();
+		optimalCut = new HashSet<Integer>(solutionNetwork.getOptimalCut());
+		partialCut = new HashSet<Integer>(optimalCut);
+		partialCut.remove(partialCut.iterator().next());
+	}
+
+	public Game newGame() throws IOException {
+		Network<Node, Integer> empty;
+		switch (network) {
+		case "adjacency":
+			empty = new AdjacencyNetwork<Node, Integer>();
+			break;
+		case "compact":
+			empty = new CompactNetwork<Node>();
+			break;
+		default:
+			throw new IllegalArgumentException("unknown network " + network + " (expected adjacency or compact)");
+		}
+		if (!solver.equals("default")) {
+			empty.setMaxFlowSolver(MaxFlowSolver.named(solver));
+		}
+		return new Game(new ByteArrayInputStream(vertexFile), new ByteArrayInputStream(edgeFile), empty);
+	}
+
+	public void resetFlow() {
+		for (Integer e : solutionNetwork.getEdges()) {
+			solutionNetwork.setFlow(e, 0);
+		}
+	}
+
+	public int computeMaxFlow() {
+		solutionNetwork.computeMaxFlow();
+		return solutionNetwork.getMaxFlow();
+	}
+
+	public Object computeMinCut() {
+		solutionNetwork.computeMinCut();
+		return solutionNetwork.getOptimalCut();
+	}
+
+	public Object getOptimalCut() {
+		return solutionNetwork.getOptimalCut();
+	}
+
+	public boolean areConnected(String removedEdges) {
+		switch (removedEdges) {
+		case "optimal":
+			return solutionNetwork.areConnected(optimalCut);
+		case "partial":
+			return solutionNetwork.areConnected(partialCut);
+		default:
+			return solutionNetwork.areConnected(noCut);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+import java.util.Random;
+
+// writes a random network in the format Game reads (a vertex file "name x y" and an edge file
+// "from to capacity"), with about size stations besides Source and Sink. The shapes are :
+// - grid : a square mesh of stations, rails going east with capacity 1-100 and rails going north
+// and south with capacity 1-50, Source feeding the west column and the east column feeding Sink.
+// This is what our rail maps look like.
+// - layered : a random DAG made of sqrt(size) layers, every station having three rails of capacity
+// 1-100 towards random stations of the next layer.
+// - adversarial : sqrt(size) parallel lines of unit capacity rails, linked to their neighbour lines by
+// high capacity rails at every level. Every augmenting path has a bottleneck of 1 and every breadth
+// first search reaches the whole network, so augmenting path algorithms pay a full traversal per unit
+// of flow.
+
+public class GraphGenerator {
+
+	private static final int TERMINAL_CAPACITY = 1000;
+
+	private final StringBuilder vertices = new StringBuilder();
+	private final StringBuilder edges = new StringBuilder();
+	private final Random random;
+
+	private GraphGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	// returns { vertex file content, edge file content }
+	public static String[] generate(String shape, int size, long seed) {
+		GraphGenerator generator = new GraphGenerator(seed);
+		switch (shape) {
+		case "grid":
+			generator.grid(size);
+			break;
+		case "layered":
+			generator.layered(size);
+			break;
+		case "adversarial":
+			generator.adversarial(size);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown shape " + shape + " (expected grid, layered or adversarial)");
+		}
+		return new String[] { generator.vertices.toString(), generator.edges.toString() };
+	}
+
+	private void grid(int size) {
+		int side = Math.max(2, (int) Math.sqrt(size));
+		terminals();
+		for (int r = 0; r < side; r++) {
+			for (int c = 0; c < side; c++) {
+				vertex(name(r, c), (c + 1.0) / (side + 1), (r + 1.0) / (side + 1));
+			}
+		}
+		for (int r = 0; r < side; r++) {
+			edge("Source", name(r, 0), TERMINAL_CAPACITY);
+			edge(name(r, side - 1), "Sink", TERMINAL_CAPACITY);
+			for (int c = 0; c < side; c++) {
+				if (c + 1 < side) {
+					edge(name(r, c), name(r, c + 1), 1 + random.nextInt(100));
+				}
+				if (r + 1 < side) {
+					edge(name(r, c), name(r + 1, c), 1 + random.nextInt(50));
+					edge(name(r + 1, c), name(r, c), 1 + random.nextInt(50));
+				}
+			}
+		}
+	}
+
+	private void layered(int size) {
+		int layers = Math.max(2, (int) Math.sqrt(size));
+		int width = Math.max(1, size / layers);
+		terminals();
+		for (int l = 0; l < layers; l++) {
+			for (int i = 0; i < width; i++) {
+				vertex(name(l, i), (l + 1.0) / (layers + 1), (i + 1.0) / (width + 1));
+			}
+		}
+		for (int i = 0; i < width; i++) {
+			edge("Source", name(0, i), TERMINAL_CAPACITY);
+			edge(name(layers - 1, i), "Sink", TERMINAL_CAPACITY);
+		}
+		for (int l = 0; l + 1 < layers; l++) {
+			for (int i = 0; i < width; i++) {
+				for (int k = 0; k < 3; k++) {
+					edge(name(l, i), name(l + 1, random.nextInt(width)), 1 + random.nextInt(100));
+				}
+			}
+		}
+	}
+
+	private void adversarial(int size) {
+		int lines = Math.max(2, (int) Math.sqrt(size));
+		int length = Math.max(2, size / lines);
+		terminals();
+		for (int l = 0; l < lines; l++) {
+			for (int j = 0; j < length; j++) {
+				vertex(name(l, j), (j + 1.0) / (length + 1), (l + 1.0) / (lines + 1));
+			}
+		}
+		for (int l = 0; l < lines; l++) {
+			edge("Source", name(l, 0), TERMINAL_CAPACITY);
+			edge(name(l, length - 1), "Sink", TERMINAL_CAPACITY);
+			for (int j = 0; j < length; j++) {
+				if (j + 1 < length) {
+					edge(name(l, j), name(l, j + 1), 1);
+				}
+				if (l + 1 < lines) {
+					edge(name(l, j), name(l + 1, j), TERMINAL_CAPACITY);
+					edge(name(l + 1, j), name(l, j), TERMINAL_CAPACITY);
+				}
+			}
+		}
+	}
+
+	private void terminals() {
+		vertex("Source", 0.0, 0.5);
+		vertex("Sink", 1.0, 0.5);
+	}
+
+	private static String name(int i, int j) {
+		return "s" + i + "_" + j;
+	}
+
+	private void vertex(String name, double x, double y) {
+		vertices.append(name).append(' ').append((float) x).append(' ').append((float) y).append('\n');
+	}
+
+	private void edge(String from, String to, int capacity) {
+		edges.append(from).append(' ').append(to).append(' ').append(capacity).append('\n');
+	}
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// the Network operations on an already loaded network. computeMaxFlow starts from zero flow on every
+// invocation, the other benchmarks run on the solved network.
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlowBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ZeroFlow {
+
+		@Setup(Level.Invocation)
+		public void reset(NetworkState state) {
+			state.workload.resetFlow();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Removal {
+
+		// optimal cut, optimal cut minus one edge, or nothing removed
+		@Param({ "optimal", "partial", "none" })
+		public String removedEdges;
+	}
+
+	@Benchmark
+	public int computeMaxFlow(NetworkState state, ZeroFlow zeroFlow) {
+		return state.workload.computeMaxFlow();
+	}
+
+	@Benchmark
+	public Object computeMinCut(NetworkState state) {
+		return state.workload.computeMinCut();
+	}
+
+	@Benchmark
+	public Object getOptimalCut(NetworkState state) {
+		return state.workload.getOptimalCut();
+	}
+
+	@Benchmark
+	public boolean areConnected(NetworkState state, Removal removal) {
+		return state.workload.areConnected(removal.removedEdges);
+	}
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// one generated and solved network per trial, shared by the benchmarks of a fork. Every parameter
+// can be overridden from the command line, e.g. -p shape=grid -p size=1000000 -p network=compact.
+
+@State(Scope.Benchmark)
+public class NetworkState {
+
+	@Param({ "grid", "layered", "adversarial" })
+	public String shape;
+
+	// number of stations besides Source and Sink (approximately, shapes round it to their dimensions)
+	@Param({ "10000" })
+	public int size;
+
+	@Param({ "adjacency", "compact" })
+	public String network;
+
+	// default is the network's own algorithm, otherwise a MaxFlowSolver name
+	@Param({ "default", "edmonds-karp", "dinic", "push-relabel" })
+	public String solver;
+
+	@Param({ "42" })
+	public long seed;
+
+	public Workload workload;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException {
+		workload = Workload.load();
+		workload.generate(shape, size, seed);
+		workload.configure(network, solver);
+	}
+}
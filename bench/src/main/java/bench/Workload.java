@@ -0,0 +1,40 @@
+package bench;
+
+import java.io.IOException;
+
+// JMH refuses benchmark classes in the default package, where the whole network code lives, and a
+// named package cannot refer to default package classes. The benchmarks therefore drive the network
+// through this interface, implemented by GameWorkload in the default package and loaded by name once
+// per trial, so the measured calls are plain interface calls.
+
+public interface Workload {
+
+	// generates the vertex and edge files of the network (see GraphGenerator)
+	public void generate(String shape, int size, long seed);
+
+	// network is adjacency or compact, solver is default (the network's own) or a MaxFlowSolver name.
+	// Builds and solves a first Game so the other calls have a network to work on.
+	public void configure(String network, String solver) throws IOException;
+
+	// parses both files and solves the network, like RailNetwork does
+	public Object newGame() throws IOException;
+
+	public void resetFlow();
+
+	public int computeMaxFlow();
+
+	public Object computeMinCut();
+
+	public Object getOptimalCut();
+
+	// removedEdges is optimal (the optimal cut), partial (the optimal cut minus one edge) or none
+	public boolean areConnected(String removedEdges);
+
+	public static Workload load() {
+		try {
+			return (Workload) Class.forName("GameWorkload").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("GameWorkload is missing from the benchmark classpath", e);
+		}
+	}
+}
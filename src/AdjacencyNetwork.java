@@ -1,40 +1,119 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class AdjacencyNetwork<Vertex, Edge> implements Network<Vertex, Edge> {
 
 	private Set<Edge> edges = new HashSet<Edge>();
-	private Map<String, Vertex> nameToVertex = new HashMap<String, Vertex>();
-	private Map<Edge, Integer> edgeToWeight = new HashMap<Edge, Integer>();
-	private Map<Edge, Integer> edgeToFlow = new HashMap<Edge, Integer>();
+	private Set<Vertex> vertices = new HashSet<Vertex>();
+	private VertexRegistry<Vertex> registry = new VertexRegistry<Vertex>();
+	private Terminals<Vertex> terminals = new Terminals<Vertex>(registry);
+	private Map<Edge, Integer> edgeToCost = new HashMap<Edge, Integer>(); // only the edges that have a cost
 	private Map<Edge, Vertex[]> edgeToVertices = new HashMap<Edge, Vertex[]>();
-	private Map<Vertex, HashSet<Edge>> vertexToForwardEdges = new HashMap<Vertex, HashSet<Edge>>();
-	private Map<Vertex, HashSet<Edge>> vertexToBackwardEdges = new HashMap<Vertex, HashSet<Edge>>();
-	private HashSet<Edge> optimalCut = new HashSet<Edge>();
+	// each edge gets a slot, never reused, and everything the searches read is kept in int arrays indexed
+	// by slot or by registry id, so they neither look up a map nor box a value
+	private Map<Edge, Integer> edgeToSlot = new HashMap<Edge, Integer>();
+	private ArrayList<Edge> slotToEdge = new ArrayList<Edge>();
+	private int[] weight = new int[16]; // by slot
+	private int[] flow = new int[16];
+	private int[] tail = new int[16];
+	private int[] head = new int[16];
+	// by registry id : the slots of the edges leaving the vertex are
+	// forwardSlots[id][0 ... forwardCount[id] - 1], and the same for the edges arriving at it
+	private int[][] forwardSlots = new int[0][];
+	private int[] forwardCount = new int[0];
+	private int[][] backwardSlots = new int[0][];
+	private int[] backwardCount = new int[0];
+	private EdgeIndex pairs = new EdgeIndex(); // edges by their endpoints
+	private FlowResult<Edge> result = null; // built by getResult, null again after every change
+	private MaxFlowSolver solver = null; // null keeps the Ford-Fulkerson loop below
+
+	// scratch arrays of the breadth first searches, see search(). A vertex is visited in the current
+	// search when visited[v] == searchMark (and ends it when stop[v] == searchMark), so they never need
+	// to be cleared.
+	private int[] visited = new int[0];
+	private int[] stop = new int[0];
+	private int searchMark = 0;
+	private int stoppedAt = -1;
+	private int[] queue = new int[0];
+	private int[] parent = new int[0];
+	private int[] parentSlot = new int[0];
+	private boolean[] forward = new boolean[0];
 
 	public void addVertex(Vertex v) {
-		if (!vertexToForwardEdges.containsKey(v) && !vertexToBackwardEdges.containsKey(v)) {
-			vertexToForwardEdges.put(v, new HashSet<Edge>());
-			vertexToBackwardEdges.put(v, new HashSet<Edge>());
+		if (vertices.add(v)) {
+			int id = registry.intern(v);
+			if (id >= forwardCount.length) {
+				int length = Math.max(16, 2 * forwardCount.length);
+				forwardSlots = Arrays.copyOf(forwardSlots, length);
+				forwardCount = Arrays.copyOf(forwardCount, length);
+				backwardSlots = Arrays.copyOf(backwardSlots, length);
+				backwardCount = Arrays.copyOf(backwardCount, length);
+			}
+			forwardSlots[id] = new int[2];
+			backwardSlots[id] = new int[2];
+			result = null;
 		}
 	}
 
 	public void addEdge(Edge e, Vertex[] v0v1) {
+		int slot = slotToEdge.size();
+		if (slot == weight.length) {
+			weight = Arrays.copyOf(weight, 2 * slot);
+			flow = Arrays.copyOf(flow, 2 * slot);
+			tail = Arrays.copyOf(tail, 2 * slot);
+			head = Arrays.copyOf(head, 2 * slot);
+		}
+		int v0 = registry.idOf(v0v1[0]);
+		int v1 = registry.idOf(v0v1[1]);
 		edges.add(e);
-		setFlow(e, 0);
 		edgeToVertices.put(e, v0v1);
-		vertexToForwardEdges.get(v0v1[0]).add(e);
-		vertexToBackwardEdges.get(v0v1[1]).add(e);
+		edgeToSlot.put(e, slot);
+		slotToEdge.add(e);
+		tail[slot] = v0;
+		head[slot] = v1;
+		forwardSlots[v0] = append(forwardSlots[v0], forwardCount[v0]++, slot);
+		backwardSlots[v1] = append(backwardSlots[v1], backwardCount[v1]++, slot);
+		pairs.add(v0, v1, slot);
+		result = null;
+	}
+
+	private static int[] append(int[] slots, int count, int slot) {
+		if (count == slots.length) {
+			slots = Arrays.copyOf(slots, 2 * count);
+		}
+		slots[count] = slot;
+		return slots;
+	}
+
+	// swaps the last slot of the list into the place of this one
+	private static void remove(int[] slots, int count, int slot) {
+		for (int i = 0; i < count; i++) {
+			if (slots[i] == slot) {
+				slots[i] = slots[count - 1];
+				return;
+			}
+		}
+	}
+
+	private int slot(Edge e) {
+		Integer slot = edgeToSlot.get(e);
+		if (slot == null) {
+			throw new IllegalArgumentException("edge " + e + " is not in the network");
+		}
+		return slot;
 	}
 
 	public Collection<Vertex> getVertices() {
-		return Collections.unmodifiableCollection(vertexToForwardEdges.keySet());
+		return Collections.unmodifiableCollection(vertices);
 	}
 
 	public Collection<Edge> getEdges() {
@@ -51,88 +130,155 @@ public class AdjacencyNetwork<Vertex, Edge> implements Network<Vertex, Edge> {
 
 	@Override
 	public Edge getEdgeFromVertices(Vertex src, Vertex dest) {
-		for (Edge e : vertexToForwardEdges.get(src)) {
-			if (getDest(e) == dest) {
-				return e;
+		int v0 = registry.idOf(src);
+		int v1 = registry.idOf(dest);
+		int slot = v0 < 0 || v1 < 0 ? -1 : pairs.first(v0, v1);
+		return slot < 0 ? null : slotToEdge.get(slot);
+	}
+
+	@Override
+	public List<Edge> getEdgesFromVertices(Vertex src, Vertex dest) {
+		ArrayList<Edge> found = new ArrayList<Edge>();
+		int v0 = registry.idOf(src);
+		int v1 = registry.idOf(dest);
+		if (v0 >= 0 && v1 >= 0) {
+			for (int slot = pairs.first(v0, v1); slot >= 0; slot = pairs.next(slot)) {
+				found.add(slotToEdge.get(slot));
 			}
 		}
-		return null;
+		return found;
 	}
 
 	@Override
 	public void nameVertex(String name, Vertex v) {
-		nameToVertex.put(name, v);
+		registry.name(name, v);
+		result = null; // the default terminals are found by name
 	}
 
 	@Override
 	public Vertex getVertexByName(String name) {
-		return nameToVertex.get(name);
+		return registry.byName(name);
 	}
 
 	@Override
 	public String getNameOrNullByVertex(Vertex v) {
-		for (Map.Entry<String, Vertex> e : nameToVertex.entrySet()) {
-			if (e.getValue().equals(v)) {
-				return e.getKey();
-			}
-		}
-		return null;
+		return registry.nameOf(v);
 	}
 
 	@Override
 	public Collection<String> getNames() {
-		return Collections.unmodifiableCollection(nameToVertex.keySet());
+		return registry.names();
 	}
 
 	@Override
 	public void setWeight(Edge e, Integer weight) {
-		edgeToWeight.put(e, weight);
+		this.weight[slot(e)] = weight;
+		result = null;
 	}
 
 	@Override
 	public Integer getWeight(Edge e) {
-		return edgeToWeight.get(e);
+		return weight[slot(e)];
 	}
 
 	@Override
 	public void setFlow(Edge e, Integer flow) {
-		edgeToFlow.put(e, flow);
+		this.flow[slot(e)] = flow;
+		result = null;
 	}
 
 	@Override
 	public Integer getFlow(Edge e) {
-		return edgeToFlow.get(e);
+		return flow[slot(e)];
 	}
 
 	public Integer getResidualCapacity(Edge e) {
-		return (edgeToWeight.get(e) - edgeToFlow.get(e));
+		return residual(slot(e));
+	}
+
+	// an INFINITE edge keeps Integer.MAX_VALUE whatever flow it carries
+	private int residual(int slot) {
+		return weight[slot] == Integer.MAX_VALUE ? Integer.MAX_VALUE : weight[slot] - flow[slot];
+	}
+
+	// capacities and flows stay Integers here (Integer.MAX_VALUE for INFINITE), larger rails need
+	// CompactNetwork : the flow of an INFINITE edge can sum up more than an int holds, that throws too
+	public void setCapacity(Edge e, long capacity) {
+		setWeight(e, weight(e, capacity));
+	}
+
+	private static <Edge> int weight(Edge e, long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("edge " + e + " cannot have a negative capacity (" + capacity + ")");
+		}
+		if (capacity != FlowGraph.INFINITE && capacity >= Integer.MAX_VALUE) {
+			throw new ArithmeticException(
+					"capacity " + capacity + " does not fit in an int, use a CompactNetwork (--compact)");
+		}
+		return FlowGraph.narrow(capacity);
+	}
+
+	private static int flow(long flow) {
+		if (flow >= Integer.MAX_VALUE) {
+			throw new ArithmeticException("flow " + flow + " does not fit in an int, use a CompactNetwork (--compact)");
+		}
+		return (int) flow;
 	}
 
-	public HashSet<Edge> getOptimalCut() {
-		return optimalCut;
+	public long getCapacity(Edge e) {
+		return FlowGraph.widen(getWeight(e));
 	}
 
-	public boolean areConnected(HashSet<Edge> removedEdges) {
-		Vertex src = getVertexByName("Source");
-		Vertex dest = getVertexByName("Sink");
-		if (src.equals(dest)) {
-			return true;
+	public long getFlowValue(Edge e) {
+		return getFlow(e);
+	}
+
+	public void setCost(Edge e, Integer cost) {
+		if (cost < 0) {
+			throw new IllegalArgumentException("edge " + e + " cannot have a negative cost (" + cost + ")");
 		}
+		edgeToCost.put(e, cost);
+	}
+
+	public Integer getCost(Edge e) {
+		return edgeToCost.getOrDefault(e, 0);
+	}
+
+	public Set<Edge> getOptimalCut() {
+		return getResult().getCut();
+	}
+
+	public void setTerminals(Collection<Vertex> sources, Collection<Vertex> sinks) {
+		terminals.set(sources, sinks);
+		result = null;
+	}
+
+	public Collection<Vertex> getSources() {
+		return terminals.sources();
+	}
+
+	public Collection<Vertex> getSinks() {
+		return terminals.sinks();
+	}
+
+	public boolean areConnected(Set<Edge> removedEdges) {
+		Set<Vertex> dest = new HashSet<Vertex>(getSinks());
 
-		LinkedList<Vertex> toVisit = new LinkedList<Vertex>();
-		toVisit.add(src);
+		LinkedList<Vertex> toVisit = new LinkedList<Vertex>(getSources());
 		Set<Vertex> visited = new HashSet<Vertex>();
 		Vertex visiting = null;
 
 		while (!toVisit.isEmpty()) {
 			visiting = toVisit.pop();
 			visited.add(visiting);
-			for (Edge temp : vertexToForwardEdges.get(visiting)) {
+			int id = registry.idOf(visiting);
+			for (int i = 0; i < forwardCount[id]; i++) {
+				Edge temp = slotToEdge.get(forwardSlots[id][i]);
 				if (removedEdges.contains(temp)) {
 					continue;
 				}
 				Vertex currentDest = getDest(temp);
-				if (currentDest.equals(dest)) {
+				if (dest.contains(currentDest)) {
 					return true;
 				}
 				if (!visited.contains(currentDest)) {
@@ -143,13 +289,146 @@ public class AdjacencyNetwork<Vertex, Edge> implements Network<Vertex, Edge> {
 		return false;
 	}
 
+	public void setMaxFlowSolver(MaxFlowSolver solver) {
+		this.solver = solver;
+	}
+
 	public void computeMaxFlow() {
+		if (solver != null) {
+			computeMaxFlowWithSolver();
+			return;
+		}
+		int[] sources = terminals.sourceIds();
+		int[] sinks = terminals.sinkIds();
+		checkBounded(sources, sinks);
 		boolean temp;
 		do {
-			temp = findAugmentingPath();
+			temp = augment(sources, sinks);
 		} while (temp != false);
 	}
 
+	// the same check as MaxFlowSolver.checkBounded, a search along the INFINITE edges only, made on the
+	// slot arrays instead of a FlowGraph copy of the network
+	private void checkBounded(int[] sources, int[] sinks) {
+		newSearch();
+		for (int t : sinks) {
+			stop[t] = searchMark;
+		}
+		int last = 0;
+		for (int s : sources) {
+			if (visited[s] != searchMark) {
+				visited[s] = searchMark;
+				queue[last++] = s;
+			}
+		}
+		for (int first = 0; first < last; first++) {
+			int u = queue[first];
+			for (int i = 0; i < forwardCount[u]; i++) {
+				int e = forwardSlots[u][i];
+				int v = head[e];
+				if (weight[e] == Integer.MAX_VALUE && visited[v] != searchMark) {
+					if (stop[v] == searchMark) {
+						throw new IllegalStateException(MaxFlowSolver.UNBOUNDED);
+					}
+					visited[v] = searchMark;
+					queue[last++] = v;
+				}
+			}
+		}
+	}
+
+	// the solvers only know about int ids : the network is copied into a FlowGraph (vertices keep their
+	// registry id, edge i of the graph is the edge of slot i, a removed edge for a slot no longer used),
+	// solved there and the resulting flows are copied back.
+
+	private void computeMaxFlowWithSolver() {
+		FlowGraph graph = toFlowGraph();
+		solver.solve(graph, terminals.sourceIds(), terminals.sinkIds());
+		copyFlows(graph);
+	}
+
+	public void computeMinCostFlow() {
+		FlowGraph graph = toFlowGraph();
+		graph.clearFlow();
+		new MinCostFlowSolver().solve(graph, terminals.sourceIds(), terminals.sinkIds());
+		copyFlows(graph);
+	}
+
+	public long getTotalCost() {
+		long total = 0;
+		for (Map.Entry<Edge, Integer> cost : edgeToCost.entrySet()) {
+			total = Math.addExact(total, Math.multiplyExact((long) getFlow(cost.getKey()), cost.getValue()));
+		}
+		return total;
+	}
+
+	private FlowGraph toFlowGraph() {
+		FlowGraph graph = new FlowGraph();
+		for (int v = 0; v < registry.size(); v++) {
+			graph.addVertex();
+		}
+		for (int i = 0; i < slotToEdge.size(); i++) {
+			graph.addEdge(tail[i], head[i]);
+			Edge e = slotToEdge.get(i);
+			if (e == null) {
+				graph.removeEdge(i);
+			} else {
+				graph.capacity[i] = FlowGraph.widen(weight[i]);
+				graph.flow[i] = flow[i];
+				graph.cost[i] = getCost(e);
+			}
+		}
+		return graph;
+	}
+
+	// all checked before the first is copied, so a flow that does not fit leaves the network as it was
+	private void copyFlows(FlowGraph graph) {
+		for (int i = 0; i < slotToEdge.size(); i++) {
+			flow(graph.flow[i]);
+		}
+		for (int i = 0; i < slotToEdge.size(); i++) {
+			flow[i] = (int) graph.flow[i];
+		}
+		result = null;
+	}
+
+	// the repair works on a FlowGraph copy as well, which costs a copy of the network per update :
+	// use CompactNetwork when updates are frequent.
+
+	public void updateWeight(Edge e, Integer weight) {
+		updateCapacity(e, FlowGraph.widen(weight));
+	}
+
+	// checked before the repair, so a capacity that does not fit leaves the network as it was
+	public void updateCapacity(Edge e, long capacity) {
+		int weight = weight(e, capacity);
+		FlowGraph graph = toFlowGraph();
+		new IncrementalMaxFlow().setCapacity(graph, slot(e), capacity, terminals.sourceIds(), terminals.sinkIds(),
+				solver == null ? new EdmondsKarpSolver() : solver);
+		setWeight(e, weight);
+		copyFlows(graph);
+		computeMinCut();
+	}
+
+	public void insertEdge(Edge e, Vertex[] v0v1, Integer weight) {
+		addEdge(e, v0v1);
+		setWeight(e, 0);
+		updateWeight(e, weight);
+	}
+
+	public void removeEdge(Edge e) {
+		updateWeight(e, 0);
+		edgeToVertices.remove(e);
+		int slot = edgeToSlot.remove(e);
+		remove(forwardSlots[tail[slot]], forwardCount[tail[slot]]--, slot);
+		remove(backwardSlots[head[slot]], backwardCount[head[slot]]--, slot);
+		pairs.remove(tail[slot], head[slot], slot);
+		slotToEdge.set(slot, null);
+		edges.remove(e);
+		edgeToCost.remove(e);
+		result = null;
+	}
+
 	// this following algorithm is the Ford-Fulkerson algorithm which consists of
 	// finding an augmenting path through the network (including the backward edges
 	// in our research). An augmenting path means that we can only consider edges
@@ -160,107 +439,140 @@ public class AdjacencyNetwork<Vertex, Edge> implements Network<Vertex, Edge> {
 	// path can be found.
 
 	public boolean findAugmentingPath() {
+		return augment(terminals.sourceIds(), terminals.sinkIds());
+	}
 
-		LinkedList<Vertex> toVisit = new LinkedList<Vertex>();
-		HashSet<Vertex> visited = new HashSet<Vertex>();
-		toVisit.add(getVertexByName("Source"));
-		Vertex visiting = null;
-		LinkedHashMap<Vertex, Object[]> link = new LinkedHashMap<Vertex, Object[]>(); // this map links a visited vertex
-																						// to an array containing the
-																						// previous vertex in the path,
-																						// 1 or -1 according to edge
-																						// direction (backward or
-																						// forward), the actual edge and
-																						// the remaining capacity of the
-																						// edge (i.e capacity - flow for
-																						// a forward edge and flow for a
-																						// backward edge). We later use
-																						// this information to compute
-																						// the path and update flow
-																						// faster and have cleaner code
-
-		while (toVisit.isEmpty() != true) {
+	private boolean augment(int[] sources, int[] sinks) {
+		search(sources, sinks);
+		if (stoppedAt < 0) {
+			return false;
+		}
+		updateFlow(stoppedAt);
+		return true;
+	}
 
-			visiting = toVisit.pop();
+	// makes room in the scratch arrays for every vertex and starts a new mark
+	private void newSearch() {
+		int n = registry.size();
+		if (visited.length < n) {
+			visited = new int[n];
+			stop = new int[n];
+			queue = new int[n];
+			parent = new int[n];
+			parentSlot = new int[n];
+			forward = new boolean[n];
+			searchMark = 0;
+		}
+		if (++searchMark == 0) { // the marks wrapped around, old marks could look current
+			Arrays.fill(visited, 0);
+			Arrays.fill(stop, 0);
+			searchMark = 1;
+		}
+	}
+
+	// breadth first search in the residual network from all the roots at once, stopping as soon as one
+	// of the stops is reached (stoppedAt tells which one, -1 if none was). Everything lives in the
+	// scratch arrays, indexed by registry id, and the graph is read from the slot arrays, so a search
+	// allocates nothing : the visited vertices are queue[0 ... count - 1] where count is the returned
+	// value, and each of them but the roots knows the vertex it was reached from (-1 for the roots), the
+	// slot of the edge it was reached through and whether that edge was used forward.
+	// A vertex is marked visited as soon as it is discovered, so it enters the queue only once and the
+	// path found to it is the first, shortest one.
+
+	private int search(int[] roots, int[] stops) {
+		newSearch();
+		for (int t : stops) {
+			stop[t] = searchMark;
+		}
+		stoppedAt = -1;
+		int first = 0, last = 0;
+		long scanned = 0; // for SolverMetrics
+		for (int s : roots) {
+			if (visited[s] != searchMark) {
+				queue[last++] = s;
+				visited[s] = searchMark;
+				parent[s] = -1;
+			}
+		}
+
+		while (first < last) {
 
-			// The two maps vertexToForwardEdges and vertexToBackwardEdges allow us to
+			int visiting = queue[first++];
+
+			// The two lists forwardSlots and backwardSlots allow us to
 			// separate the cases in two different for loops. This make the algorithm faster
 			// since we don't need to check at each iteration of the for loop if the edge is
 			// a backward or forward edge. Also, the number of iterations remains the same
 			// even though we have two for loops because we treat the same number of edges,
 			// just in a more ordered manner.
 
-			for (Edge e : vertexToForwardEdges.get(visiting)) {
-
-				Vertex v = getDest(e);
-				int residual = getResidualCapacity(e);
-				if (residual > 0 && !visited.contains(v)) {
-					link.put(v, new Object[] { visiting, 1, e, residual });
-
-					if (v.equals(getVertexByName("Sink"))) {
-						return computePathAndUpdateFlow(link, v);
+			int[] slots = forwardSlots[visiting];
+			for (int i = 0; i < forwardCount[visiting]; i++) {
+				int e = slots[i];
+				scanned++;
+				int v = head[e];
+				if (visited[v] != searchMark && residual(e) > 0) {
+					visited[v] = searchMark;
+					parent[v] = visiting;
+					parentSlot[v] = e;
+					forward[v] = true;
+					queue[last++] = v;
+					if (stop[v] == searchMark) {
+						stoppedAt = v;
+						SolverMetrics.search(last, scanned);
+						return last;
 					}
-					toVisit.add(v);
 				}
 			}
 
-			for (Edge e : vertexToBackwardEdges.get(visiting)) {
-
-				Vertex v = getSource(e);
-				int residual = getFlow(e);
-
-				if (residual > 0 && !visited.contains(v)) {
-					link.put(v, new Object[] { visiting, -1, e, residual });
-
-					if (v.equals(getVertexByName("Sink"))) {
-						return computePathAndUpdateFlow(link, v);
+			slots = backwardSlots[visiting];
+			for (int i = 0; i < backwardCount[visiting]; i++) {
+				int e = slots[i];
+				scanned++;
+				int v = tail[e];
+				if (visited[v] != searchMark && flow[e] > 0) {
+					visited[v] = searchMark;
+					parent[v] = visiting;
+					parentSlot[v] = e;
+					forward[v] = false;
+					queue[last++] = v;
+					if (stop[v] == searchMark) {
+						stoppedAt = v;
+						SolverMetrics.search(last, scanned);
+						return last;
 					}
-					toVisit.add(v);
 				}
 			}
-			visited.add(visiting);
 		}
-		return false;
+		SolverMetrics.search(last, scanned);
+		return last;
 	}
 
-	@SuppressWarnings("unchecked") // this is just to remove the Java warnings about the Object[] we previously
-									// built in the link LinkedHashMap : everytime we access an object in the array
-									// and use it, we get a warning that this object might be invalid as a
-									// parameter. That's why we need to cast the types (Vertex) (Edge) (int) before
-									// using the array objects
+	// walks the path found by search back from the sink twice : once for the bottleneck, once to add it
+	// on forward edges and remove it on backward edges. The first walk also finds the INFINITE edge of the
+	// path carrying the most flow, so a path that would take it beyond an int throws before any flow
+	// changed.
 
-	public boolean computePathAndUpdateFlow(LinkedHashMap<Vertex, Object[]> link, Vertex destination) {
-
-		LinkedList<Vertex> path = new LinkedList<Vertex>();
-		path.add(destination);
-		LinkedHashMap<Edge, Integer> returnPath = new LinkedHashMap<Edge, Integer>();
+	private void updateFlow(int sink) {
 		int bottleNeck = Integer.MAX_VALUE;
-		int tempBottleNeck;
-
-		while (path.get(0) != getVertexByName("Source")) {
-
-			Object[] currentLink = link.get(path.get(0));
-			path.addFirst((Vertex) currentLink[0]);
-			returnPath.put((Edge) currentLink[2], (int) currentLink[1]); // we compute the path by adding the edges as
-																			// well as 1 or -1 according to forward or
-																			// backward.
-			tempBottleNeck = (int) currentLink[3];
-
-			if (tempBottleNeck < bottleNeck) { // we can compute the bottleneck at the same as we build the path because
-												// we transmitted the information in the fourth argument of the link
-												// array
-				bottleNeck = tempBottleNeck;
+		int fullest = 0;
+		for (int v = sink; parent[v] >= 0; v = parent[v]) {
+			int e = parentSlot[v];
+			int residual = forward[v] ? residual(e) : flow[e];
+			if (residual < bottleNeck) {
+				bottleNeck = residual;
+			}
+			if (forward[v] && weight[e] == Integer.MAX_VALUE) {
+				fullest = Math.max(fullest, flow[e]);
 			}
 		}
-
-		Set<Edge> edgesPath = returnPath.keySet();
-		for (Edge e1 : edgesPath) {
-			setFlow(e1, (getFlow(e1) + bottleNeck * returnPath.get(e1))); // updating the flow is now a one-liner
-																				// thanks
-																				// to the previous transmission of the
-																				// information through the whole process
+		flow((long) fullest + bottleNeck);
+		SolverMetrics.augmentation(bottleNeck);
+		for (int v = sink; parent[v] >= 0; v = parent[v]) {
+			int e = parentSlot[v];
+			flow[e] += forward[v] ? bottleNeck : -bottleNeck;
 		}
-		return true;
+		result = null;
 	}
 
 	// this is the minimumCut algorithm which is based on the results of the
@@ -270,48 +582,62 @@ public class AdjacencyNetwork<Vertex, Edge> implements Network<Vertex, Edge> {
 	// visit, the minimum cut edges are those that go from a marked vertex towards a
 	// non marked vertex thanks to a forward edge.
 
-	public void computeMinCut() {
-		LinkedList<Vertex> toVisit = new LinkedList<Vertex>();
-		HashSet<Vertex> visited = new HashSet<Vertex>();
-		toVisit.add(getVertexByName("Source"));
-		HashSet<Vertex> marked = new HashSet<Vertex>();
-		marked.add(getVertexByName("Source"));
-
-		while (toVisit.isEmpty() != true) {
-
-			Vertex visiting = toVisit.pop();
+	// The flows are copied into the result so that it does not move with the network.
 
-			for (Edge e : vertexToForwardEdges.get(visiting)) {
-				Vertex v = getDest(e);
-				if (getResidualCapacity(e) > 0 && !visited.contains(v)) {
-					marked.add(v);
-					toVisit.add(v);
-				}
+	public FlowResult<Edge> getResult() {
+		if (result == null) {
+			int marked = search(terminals.sourceIds(), ParallelBfs.NO_VERTICES);
+			BitSet sourceSide = new BitSet(registry.size());
+			for (int i = 0; i < marked; i++) {
+				sourceSide.set(queue[i]);
 			}
-
-			for (Edge e : vertexToBackwardEdges.get(visiting)) {
-				Vertex v = getSource(e);
-				if (getFlow(e) > 0 && !visited.contains(v)) {
-					marked.add(v);
-					toVisit.add(v);
+			ArrayList<Edge> cut = new ArrayList<Edge>();
+			for (int i = 0; i < marked; i++) {
+				int u = queue[i];
+				for (int k = 0; k < forwardCount[u]; k++) {
+					int e = forwardSlots[u][k];
+					if (!sourceSide.get(head[e])) {
+						cut.add(slotToEdge.get(e));
+					}
 				}
 			}
-			visited.add(visiting);
+			int[] flows = Arrays.copyOf(flow, slotToEdge.size());
+			result = new FlowResult<Edge>(netOutflow(), e -> flowIn(flows, e), sourceSide, cut);
 		}
+		return result;
+	}
 
-		for (Vertex v : marked) {
-			for (Edge e : vertexToForwardEdges.get(v)) {
-				if (!marked.contains(getDest(e))) {
-					optimalCut.add(e);
-				}
-			}
+	// slots are never reused, so the slot of an edge still indexes a copy of the flows taken before, as
+	// long as the edge was there when the copy was taken
+	private long flowIn(int[] flows, Edge e) {
+		int slot = slot(e);
+		if (slot >= flows.length) {
+			throw new IllegalArgumentException("edge " + e + " is not in the network");
 		}
+		return flows[slot];
+	}
+
+	public void computeMinCut() {
+		getResult();
 	}
 
 	public int getMaxFlow() {
-		int maxFlow = 0;
-		for (Edge e : vertexToForwardEdges.get(getVertexByName("Source"))) {
-			maxFlow += getFlow(e);
+		return Math.toIntExact(getMaxFlowValue());
+	}
+
+	public long getMaxFlowValue() {
+		return getResult().getMaxFlow();
+	}
+
+	private long netOutflow() {
+		long maxFlow = 0;
+		for (int s : terminals.sourceIds()) {
+			for (int i = 0; i < forwardCount[s]; i++) {
+				maxFlow += flow[forwardSlots[s][i]];
+			}
+			for (int i = 0; i < backwardCount[s]; i++) { // only the solvers send flow back
+				maxFlow -= flow[backwardSlots[s][i]];
+			}
 		}
 		return maxFlow;
 	}
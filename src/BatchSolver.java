@@ -0,0 +1,203 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// solves many scenarios (a vertex file and an edge file each) on a fixed pool of worker threads.
+// Every scenario gets its own network and its own solver, nothing is shared between workers. Results
+// are written as JSON Lines, one object per scenario, in the order the scenarios finish :
+// {"scenario":"...","vertices":"...","edges":"...","status":"ok","stations":7,"rails":10,"maxFlow":6,
+// "totalCost":0,"cut":[{"from":"a","to":"b","capacity":2},...],"loadMillis":1.2,"solveMillis":0.3,"cutMillis":0.1}
+// or {"scenario":"...","vertices":"...","edges":"...","status":"error","error":"..."} when a scenario
+// cannot be solved, which does not stop the others. Scenarios whose rails have costs are solved for
+// the cheapest maximum flow.
+//
+// The scenarios come either from a manifest, a text file with one "vertexFile edgeFile" pair per line
+// (relative paths are relative to the manifest, blank lines and lines starting with # are skipped), or
+// from a directory, where every file with "vertices" in its name is paired with the file named the same
+// with "edges" instead (vertices2.txt and edges2.txt, Vertices.txt and edges.txt...).
+
+public class BatchSolver {
+
+	private final boolean compact;
+	private final String solverName; // null for the network's own algorithm
+	private final List<String> sources; // station names, null for Source
+	private final List<String> sinks; // station names, null for Sink
+	private final int threads;
+
+	public BatchSolver(boolean compact, String solverName, List<String> sources, List<String> sinks, int threads) {
+		this.compact = compact;
+		this.solverName = solverName;
+		this.sources = sources;
+		this.sinks = sinks;
+		this.threads = threads;
+	}
+
+	public static List<Path[]> readScenarios(Path manifestOrDirectory) throws IOException {
+		List<Path[]> scenarios = new ArrayList<Path[]>();
+		if (Files.isDirectory(manifestOrDirectory)) {
+			File[] files = manifestOrDirectory.toFile().listFiles();
+			Arrays.sort(files);
+			for (File f : files) {
+				String name = f.getName();
+				int i = name.toLowerCase().indexOf("vertices");
+				if (i >= 0) {
+					File edges = new File(f.getParentFile(), name.substring(0, i) + "edges" + name.substring(i + 8));
+					if (edges.isFile()) {
+						scenarios.add(new Path[] { f.toPath(), edges.toPath() });
+					}
+				}
+			}
+			return scenarios;
+		}
+		Path base = manifestOrDirectory.toAbsolutePath().getParent();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(manifestOrDirectory, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split("\\s+");
+			if (parts.length != 2) {
+				throw new MalformedNetworkException(manifestOrDirectory.toString(), lineNumber,
+						"expected a vertex file and an edge file");
+			}
+			scenarios.add(new Path[] { base.resolve(parts[0]), base.resolve(parts[1]) });
+		}
+		return scenarios;
+	}
+
+	// solves all the scenarios and writes one line per scenario as soon as it is solved. Only the calling
+	// thread writes, the workers just return their line.
+	public void run(List<Path[]> scenarios, Writer out) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			CompletionService<String> results = new ExecutorCompletionService<String>(pool);
+			for (Path[] scenario : scenarios) {
+				results.submit(() -> solve(scenario[0], scenario[1]));
+			}
+			for (int i = 0; i < scenarios.size(); i++) {
+				out.write(results.take().get());
+				out.write('\n');
+				out.flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("batch interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("a scenario failed unexpectedly", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	public void run(List<Path[]> scenarios) throws IOException {
+		run(scenarios, new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+	}
+
+	private String solve(Path vertices, Path edges) {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"scenario\":");
+		string(json, scenarioName(vertices));
+		json.append(",\"vertices\":");
+		string(json, vertices.toString());
+		json.append(",\"edges\":");
+		string(json, edges.toString());
+		int header = json.length();
+		try {
+			Network<Node, Integer> network = compact ? new CompactNetwork<Node>() : new AdjacencyNetwork<Node, Integer>();
+			if (solverName != null) {
+				network.setMaxFlowSolver(MaxFlowSolver.named(solverName));
+			}
+			long start = System.nanoTime();
+			NetworkLoader loader = new NetworkLoader(network);
+			try (InputStream is = new FileInputStream(vertices.toFile());
+					InputStream is2 = new FileInputStream(edges.toFile())) {
+				loader.readVertices(is);
+				loader.readEdges(is2);
+			}
+			Game.setTerminals(network, sources, sinks);
+			long loaded = System.nanoTime();
+			if (loader.hasCosts()) {
+				network.computeMinCostFlow();
+			} else {
+				network.computeMaxFlow();
+			}
+			long solved = System.nanoTime();
+			network.computeMinCut();
+			long cut = System.nanoTime();
+			SolverMetrics.phase(SolverMetrics.Phase.LOAD, loaded - start);
+			SolverMetrics.phase(SolverMetrics.Phase.SOLVE, solved - loaded);
+			SolverMetrics.phase(SolverMetrics.Phase.CUT, cut - solved);
+
+			json.append(",\"status\":\"ok\",\"stations\":").append(network.getVertices().size());
+			json.append(",\"rails\":").append(network.getEdges().size());
+			json.append(",\"maxFlow\":").append(network.getMaxFlowValue());
+			json.append(",\"totalCost\":").append(network.getTotalCost());
+			json.append(",\"cut\":[");
+			boolean first = true;
+			for (int e : network.getOptimalCut()) {
+				json.append(first ? "{\"from\":" : ",{\"from\":");
+				string(json, network.getNameOrNullByVertex(network.getSource(e)));
+				json.append(",\"to\":");
+				string(json, network.getNameOrNullByVertex(network.getDest(e)));
+				json.append(",\"capacity\":").append(network.getCapacity(e)).append('}');
+				first = false;
+			}
+			json.append("],\"loadMillis\":").append(millis(start, loaded));
+			json.append(",\"solveMillis\":").append(millis(loaded, solved));
+			json.append(",\"cutMillis\":").append(millis(solved, cut)).append('}');
+		} catch (IOException | RuntimeException e) {
+			json.setLength(header);
+			json.append(",\"status\":\"error\",\"error\":");
+			string(json, e.getMessage() == null ? e.toString() : e.getMessage());
+			json.append('}');
+		}
+		return json.toString();
+	}
+
+	private static String scenarioName(Path vertices) {
+		String name = vertices.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	private static double millis(long from, long to) {
+		return Math.round((to - from) / 1e4) / 100.0;
+	}
+
+	// JSON string literal, with the characters JSON requires to be escaped
+	static void string(StringBuilder json, String s) {
+		if (s == null) {
+			json.append("null");
+			return;
+		}
+		json.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+}
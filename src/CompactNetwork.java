@@ -0,0 +1,398 @@
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Network implementation backed by a FlowGraph : every vertex is interned to a dense int id (see
+// VertexRegistry) the first time it is added and every attribute of the graph (capacity, flow,
+// endpoints, adjacency) is stored in primitive arrays, longs for the capacities and flows and ints for the
+// rest. Edges are the Integer ids 0, 1, 2, ... given in insertion order, which is how Game numbers them,
+// so an edge needs no map at all and getEdges() is just a view over that range (minus the removed edges).
+// Compared to AdjacencyNetwork this removes the boxed Integer values and the HashSet entries of each
+// edge, which is what dominates the heap on networks with millions of rails.
+
+public class CompactNetwork<Vertex> implements Network<Vertex, Integer> {
+
+	private FlowGraph graph = new FlowGraph();
+	private VertexRegistry<Vertex> registry = new VertexRegistry<Vertex>();
+	private Terminals<Vertex> terminals = new Terminals<Vertex>(registry);
+	private FlowResult<Integer> result = null; // built by getResult, null again after every change
+	private MaxFlowSolver solver = new EdmondsKarpSolver();
+	private EdmondsKarpSolver augmentingPathFinder = new EdmondsKarpSolver();
+	private MinCostFlowSolver minCostSolver = null; // created on first use
+	private IncrementalMaxFlow incremental = new IncrementalMaxFlow();
+	private EdgeIndex pairs = null; // built by the first lookup by endpoints, then kept up to date
+
+	// scratch arrays reused by the traversals, they only grow with the number of vertices
+	private int[] queue = new int[0];
+	private boolean[] visited = new boolean[0];
+	private int[] distance = new int[0];
+	private boolean[] isSink = new boolean[0];
+	private ParallelBfs bfs = new ParallelBfs();
+
+	public void addVertex(Vertex v) {
+		if (!registry.contains(v)) {
+			registry.intern(v);
+			graph.addVertex();
+			result = null;
+		}
+	}
+
+	// the primitive graph itself, for the classes that read or write it in bulk (NetworkSnapshot). Writing
+	// through it does not drop the cached result, only a network that has not been queried yet should
+	// be filled this way.
+	FlowGraph getFlowGraph() {
+		pairs = null;
+		return graph;
+	}
+
+	public void addEdge(Integer e, Vertex[] v0v1) {
+		if (e != graph.edgeCount) {
+			throw new IllegalArgumentException("edge " + e + " should have id " + graph.edgeCount
+					+ " : edges must be numbered 0, 1, 2, ... in insertion order");
+		}
+		graph.addEdge(registry.idOf(v0v1[0]), registry.idOf(v0v1[1]));
+		if (pairs != null) {
+			pairs.add(graph.tail[e], graph.head[e], e);
+		}
+		result = null;
+	}
+
+	public Collection<Vertex> getVertices() {
+		return registry.vertices();
+	}
+
+	public Collection<Integer> getEdges() {
+		return new EdgeView();
+	}
+
+	public Vertex getSource(Integer e) {
+		return registry.vertex(graph.tail[e]);
+	}
+
+	public Vertex getDest(Integer e) {
+		return registry.vertex(graph.head[e]);
+	}
+
+	@Override
+	public Integer getEdgeFromVertices(Vertex src, Vertex dest) {
+		int v0 = registry.idOf(src);
+		int v1 = registry.idOf(dest);
+		if (v0 < 0 || v1 < 0) {
+			return null;
+		}
+		int e = pairs().first(v0, v1);
+		return e < 0 ? null : e;
+	}
+
+	@Override
+	public List<Integer> getEdgesFromVertices(Vertex src, Vertex dest) {
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		int v0 = registry.idOf(src);
+		int v1 = registry.idOf(dest);
+		if (v0 >= 0 && v1 >= 0) {
+			for (int e = pairs().first(v0, v1); e >= 0; e = pairs.next(e)) {
+				found.add(e);
+			}
+		}
+		return found;
+	}
+
+	private EdgeIndex pairs() {
+		if (pairs == null) {
+			pairs = new EdgeIndex();
+			for (int e = 0; e < graph.edgeCount; e++) {
+				if (!graph.isRemoved(e)) {
+					pairs.add(graph.tail[e], graph.head[e], e);
+				}
+			}
+		}
+		return pairs;
+	}
+
+	@Override
+	public void nameVertex(String name, Vertex v) {
+		registry.name(name, v);
+		result = null; // the default terminals are found by name
+	}
+
+	@Override
+	public Vertex getVertexByName(String name) {
+		return registry.byName(name);
+	}
+
+	@Override
+	public String getNameOrNullByVertex(Vertex v) {
+		return registry.nameOf(v);
+	}
+
+	@Override
+	public Collection<String> getNames() {
+		return registry.names();
+	}
+
+	@Override
+	public void setWeight(Integer e, Integer weight) {
+		graph.capacity[e] = FlowGraph.widen(weight);
+		result = null;
+	}
+
+	@Override
+	public Integer getWeight(Integer e) {
+		return FlowGraph.narrow(graph.capacity[e]);
+	}
+
+	@Override
+	public void setFlow(Integer e, Integer flow) {
+		graph.flow[e] = flow;
+		result = null;
+	}
+
+	@Override
+	public Integer getFlow(Integer e) {
+		return Math.toIntExact(graph.flow[e]);
+	}
+
+	public Integer getResidualCapacity(Integer e) {
+		return FlowGraph.narrow(graph.getResidualCapacity(e));
+	}
+
+	public void setCapacity(Integer e, long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("edge " + e + " cannot have a negative capacity (" + capacity + ")");
+		}
+		graph.capacity[e] = capacity;
+		result = null;
+	}
+
+	public long getCapacity(Integer e) {
+		return graph.capacity[e];
+	}
+
+	public long getFlowValue(Integer e) {
+		return graph.flow[e];
+	}
+
+	public void setCost(Integer e, Integer cost) {
+		if (cost < 0) {
+			throw new IllegalArgumentException("edge " + e + " cannot have a negative cost (" + cost + ")");
+		}
+		graph.cost[e] = cost;
+	}
+
+	public Integer getCost(Integer e) {
+		return graph.cost[e];
+	}
+
+	public void updateWeight(Integer e, Integer weight) {
+		updateCapacity(e, FlowGraph.widen(weight));
+	}
+
+	public void updateCapacity(Integer e, long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("edge " + e + " cannot have a negative capacity (" + capacity + ")");
+		}
+		try {
+			incremental.setCapacity(graph, e, capacity, terminals.sourceIds(), terminals.sinkIds(), solver);
+		} finally {
+			result = null;
+		}
+		computeMinCut();
+	}
+
+	public void insertEdge(Integer e, Vertex[] v0v1, Integer weight) {
+		addEdge(e, v0v1);
+		updateWeight(e, weight);
+	}
+
+	public void removeEdge(Integer e) {
+		try {
+			incremental.setCapacity(graph, e, 0, terminals.sourceIds(), terminals.sinkIds(), solver);
+		} finally {
+			result = null;
+		}
+		if (pairs != null && !graph.isRemoved(e)) {
+			pairs.remove(graph.tail[e], graph.head[e], e);
+		}
+		graph.removeEdge(e);
+		result = null;
+		computeMinCut();
+	}
+
+	public Set<Integer> getOptimalCut() {
+		return getResult().getCut();
+	}
+
+	public void setTerminals(Collection<Vertex> sources, Collection<Vertex> sinks) {
+		terminals.set(sources, sinks);
+		result = null;
+	}
+
+	public Collection<Vertex> getSources() {
+		return terminals.sources();
+	}
+
+	public Collection<Vertex> getSinks() {
+		return terminals.sinks();
+	}
+
+	public boolean areConnected(Set<Integer> removedEdges) {
+		int[] sinks = terminals.sinkIds();
+		prepareTraversal();
+		for (int t : sinks) {
+			isSink[t] = true;
+		}
+		int first = 0, last = 0;
+		for (int s : terminals.sourceIds()) {
+			queue[last++] = s;
+			visited[s] = true;
+		}
+
+		boolean connected = false;
+		search: while (first < last) {
+			int visiting = queue[first++];
+			for (int i = graph.outStart[visiting]; i < graph.outStart[visiting + 1]; i++) {
+				int e = graph.outEdges[i];
+				int v = graph.head[e];
+				if (visited[v] || removedEdges.contains(e)) {
+					continue;
+				}
+				if (isSink[v]) {
+					connected = true;
+					break search;
+				}
+				visited[v] = true;
+				queue[last++] = v;
+			}
+		}
+		for (int t : sinks) {
+			isSink[t] = false;
+		}
+		return connected;
+	}
+
+	public void setMaxFlowSolver(MaxFlowSolver solver) {
+		this.solver = solver;
+	}
+
+	public void computeMaxFlow() {
+		solver.solve(graph, terminals.sourceIds(), terminals.sinkIds());
+		result = null;
+	}
+
+	public void computeMinCostFlow() {
+		if (minCostSolver == null) {
+			minCostSolver = new MinCostFlowSolver();
+		}
+		graph.clearFlow();
+		minCostSolver.solve(graph, terminals.sourceIds(), terminals.sinkIds());
+		result = null;
+	}
+
+	public long getTotalCost() {
+		return graph.totalCost();
+	}
+
+	public boolean findAugmentingPath() {
+		result = null;
+		return augmentingPathFinder.augment(graph, terminals.sourceIds(), terminals.sinkIds());
+	}
+
+	// the vertices reachable from the sources in the residual network are the source side of the
+	// minimum cut, the cut edges are the forward edges leaving that side. The flows are copied so the
+	// result does not move with the graph.
+
+	public FlowResult<Integer> getResult() {
+		if (result == null) {
+			int[] sources = terminals.sourceIds();
+			prepareTraversal();
+			int reached = bfs.search(graph, sources, false, ParallelBfs.NO_VERTICES, distance, -1, queue);
+			BitSet sourceSide = new BitSet(graph.vertexCount);
+			for (int i = 0; i < reached; i++) {
+				sourceSide.set(queue[i]);
+			}
+			ArrayList<Integer> cut = new ArrayList<Integer>();
+			for (int e = 0; e < graph.edgeCount; e++) {
+				if (sourceSide.get(graph.tail[e]) && !sourceSide.get(graph.head[e]) && !graph.isRemoved(e)) {
+					cut.add(e);
+				}
+			}
+			long[] flows = Arrays.copyOf(graph.flow, graph.edgeCount);
+			// net flow out of the sources : a solver may leave flow on edges entering them
+			result = new FlowResult<Integer>(graph.netOutflow(sources), e -> flows[e], sourceSide, cut);
+		}
+		return result;
+	}
+
+	public void computeMinCut() {
+		getResult();
+	}
+
+	public int getMaxFlow() {
+		return Math.toIntExact(getMaxFlowValue());
+	}
+
+	public long getMaxFlowValue() {
+		return getResult().getMaxFlow();
+	}
+
+	private void prepareTraversal() {
+		graph.index();
+		int n = graph.vertexCount;
+		if (queue.length < n) {
+			queue = new int[n];
+			visited = new boolean[n];
+			distance = new int[n];
+			isSink = new boolean[n];
+		} else {
+			Arrays.fill(visited, 0, n, false);
+		}
+	}
+
+	// read-only view of the edge ids that were not removed, it never materializes the boxed Integers
+	private class EdgeView extends AbstractCollection<Integer> {
+
+		@Override
+		public Iterator<Integer> iterator() {
+			return new Iterator<Integer>() {
+				private int next = skipRemoved(0);
+
+				public boolean hasNext() {
+					return next < graph.edgeCount;
+				}
+
+				public Integer next() {
+					if (next >= graph.edgeCount) {
+						throw new NoSuchElementException();
+					}
+					int e = next;
+					next = skipRemoved(next + 1);
+					return e;
+				}
+			};
+		}
+
+		private int skipRemoved(int e) {
+			while (e < graph.edgeCount && graph.isRemoved(e)) {
+				e++;
+			}
+			return e;
+		}
+
+		@Override
+		public int size() {
+			return graph.edgeCount - graph.getRemovedEdges().cardinality();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Integer && (Integer) o >= 0 && (Integer) o < graph.edgeCount
+					&& !graph.isRemoved((Integer) o);
+		}
+	}
+}
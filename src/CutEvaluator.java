@@ -0,0 +1,197 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+// what-if engine behind the game : it follows the rails the user removes one toggle at a time and
+// keeps, without searching the whole network again, the answers the game needs after every click :
+// - the capacity removed so far (a running sum)
+// - whether a sink can still be reached from a source through the remaining rails (same rule as
+// Network.areConnected, rails are only used in their own direction)
+// - whether the removed rails are a minimum cut of the solved network, any of them (see MinCuts) : the
+// removed capacity must be the max flow and no removed rail may be in no minimum cut, which the counters
+// tell, and only then are the removed rails checked against the components of the residual graph
+// Reachability is kept as a breadth first search forest from the sources. Removing a rail that is not the
+// tree edge of its destination changes nothing, restoring a rail only extends the tree from its
+// destination, and only removing a tree edge searches the network again.
+// The network must not change while the evaluator is in use.
+
+public class CutEvaluator {
+
+	private final FlowGraph graph = new FlowGraph(); // edge ids and Node ids of the network
+	private final int[] sources;
+	private final int[] sinks;
+
+	private final boolean[] removed;
+	private final MinCuts<Node, Integer> minCuts;
+	private final boolean[] inNoMinimumCut; // rails of positive capacity that removing keeps from being optimal
+	private int removedInNoMinimumCut = 0;
+	// the removed rails, in no order : position[e] is where rail e is in removedRails
+	private final int[] removedRails;
+	private final int[] position;
+	private int removedCount = 0;
+	private long removedCapacity = 0; // of the finite rails
+	private int removedInfinite = 0; // rails of infinite capacity removed
+
+	private final boolean[] reachable;
+	private final int[] treeEdge; // edge through which each reachable vertex was reached, -1 for the sources
+	private final int[] queue;
+
+	public CutEvaluator(Network<Node, Integer> network) {
+		this(network, new MinCuts<Node, Integer>(network));
+	}
+
+	// the minimum cuts must be those of this network, as Game.getMinCuts gives them
+	public CutEvaluator(Network<Node, Integer> network, MinCuts<Node, Integer> minCuts) {
+		this.minCuts = minCuts;
+		for (int i = 0; i < network.getVertices().size(); i++) {
+			graph.addVertex();
+		}
+		int edgeCount = 0;
+		for (int e : network.getEdges()) {
+			edgeCount = Math.max(edgeCount, e + 1);
+		}
+		Node any = network.getVertices().iterator().next();
+		for (int e = 0; e < edgeCount; e++) {
+			if (network.getEdges().contains(e)) {
+				graph.addEdge(network.getSource(e).id, network.getDest(e).id);
+				graph.capacity[e] = network.getCapacity(e);
+			} else {
+				graph.addEdge(any.id, any.id);
+				graph.removeEdge(e);
+			}
+		}
+		graph.index();
+		sources = ids(network.getSources());
+		sinks = ids(network.getSinks());
+
+		removed = new boolean[edgeCount];
+		inNoMinimumCut = new boolean[edgeCount];
+		for (int e : network.getEdges()) {
+			inNoMinimumCut[e] = graph.capacity[e] > 0 && minCuts.getCriticality(e) == MinCuts.Criticality.NEVER;
+		}
+		removedRails = new int[edgeCount];
+		position = new int[edgeCount];
+
+		reachable = new boolean[graph.vertexCount];
+		treeEdge = new int[graph.vertexCount];
+		queue = new int[graph.vertexCount];
+		searchFromSources();
+	}
+
+	private static int[] ids(Collection<Node> vertices) {
+		int[] ids = new int[vertices.size()];
+		int i = 0;
+		for (Node v : vertices) {
+			ids[i++] = v.id;
+		}
+		return ids;
+	}
+
+	// removes the rail if it is present, puts it back otherwise, and returns whether it is now removed
+	public boolean toggle(int e) {
+		if (removed[e]) {
+			restore(e);
+		} else {
+			remove(e);
+		}
+		return removed[e];
+	}
+
+	public boolean isRemoved(int e) {
+		return removed[e];
+	}
+
+	// FlowGraph.INFINITE as soon as a rail without limit is removed
+	public long getRemovedCapacity() {
+		return removedInfinite > 0 ? FlowGraph.INFINITE : removedCapacity;
+	}
+
+	public boolean isConnected() {
+		for (int t : sinks) {
+			if (reachable[t]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isOptimal() {
+		if (removedInNoMinimumCut > 0 || removedInfinite > 0 || removedCapacity != minCuts.getValue()) {
+			return false;
+		}
+		ArrayList<Integer> cut = new ArrayList<Integer>(removedCount);
+		for (int i = 0; i < removedCount; i++) {
+			cut.add(removedRails[i]);
+		}
+		return minCuts.isMinimumCut(cut);
+	}
+
+	private void remove(int e) {
+		removed[e] = true;
+		position[e] = removedCount;
+		removedRails[removedCount++] = e;
+		if (graph.capacity[e] == FlowGraph.INFINITE) {
+			removedInfinite++;
+		} else {
+			removedCapacity = Math.addExact(removedCapacity, graph.capacity[e]);
+		}
+		if (inNoMinimumCut[e]) {
+			removedInNoMinimumCut++;
+		}
+		if (treeEdge[graph.head[e]] == e) {
+			searchFromSources();
+		}
+	}
+
+	private void restore(int e) {
+		removed[e] = false;
+		int last = removedRails[--removedCount];
+		removedRails[position[e]] = last;
+		position[last] = position[e];
+		if (graph.capacity[e] == FlowGraph.INFINITE) {
+			removedInfinite--;
+		} else {
+			removedCapacity -= graph.capacity[e];
+		}
+		if (inNoMinimumCut[e]) {
+			removedInNoMinimumCut--;
+		}
+		int v = graph.head[e];
+		if (reachable[graph.tail[e]] && !reachable[v]) {
+			reachable[v] = true;
+			treeEdge[v] = e;
+			queue[0] = v;
+			search(1);
+		}
+	}
+
+	private void searchFromSources() {
+		Arrays.fill(reachable, false);
+		Arrays.fill(treeEdge, -1);
+		int last = 0;
+		for (int s : sources) {
+			if (!reachable[s]) {
+				reachable[s] = true;
+				queue[last++] = s;
+			}
+		}
+		search(last);
+	}
+
+	// breadth first search from the vertices already in the queue, which are marked reachable
+	private void search(int last) {
+		int first = 0;
+		while (first < last) {
+			int visiting = queue[first++];
+			for (int i = graph.outStart[visiting]; i < graph.outStart[visiting + 1]; i++) {
+				int e = graph.outEdges[i];
+				int v = graph.head[e];
+				if (!reachable[v] && !removed[e]) {
+					reachable[v] = true;
+					treeEdge[v] = e;
+					queue[last++] = v;
+				}
+			}
+		}
+	}
+}
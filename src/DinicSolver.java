@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+// Dinic's algorithm : a breadth first search from the sources labels every vertex with its distance in
+// the residual network (the level graph), then a blocking flow is pushed using only arcs that go from
+// one level to the next, from each source in turn to any sink. Each phase strictly increases the
+// distance from the sources to every sink still reachable, so there are at most V phases, and the current arc pointers make a blocking flow cost O(VE).
+// The depth first search is iterative (the path is kept in pathArcs) so long rail lines cannot
+// overflow the call stack. The level graph is built by ParallelBfs, in parallel on large networks.
+
+public class DinicSolver implements MaxFlowSolver {
+
+	private int[] level = new int[0];
+	private int[] currentArc = new int[0];
+	private int[] queue = new int[0];
+	private int[] pathArcs = new int[0];
+	private boolean[] isSink = new boolean[0];
+	private ParallelBfs bfs = new ParallelBfs();
+
+	public long solve(FlowGraph graph, int[] sources, int[] sinks) {
+		MaxFlowSolver.checkBounded(graph, sources, sinks);
+		graph.index();
+		int n = graph.vertexCount;
+		if (level.length < n) {
+			level = new int[n];
+			currentArc = new int[n];
+			queue = new int[n];
+			pathArcs = new int[n];
+			isSink = new boolean[n];
+		}
+		for (int t : sinks) {
+			isSink[t] = true;
+		}
+		while (buildLevels(graph, sources, sinks)) {
+			Arrays.fill(currentArc, 0, n, 0);
+			for (int s : sources) {
+				blockingFlow(graph, s);
+			}
+		}
+		for (int t : sinks) {
+			isSink[t] = false;
+		}
+		return graph.netOutflow(sources);
+	}
+
+	private boolean buildLevels(FlowGraph graph, int[] sources, int[] sinks) {
+		bfs.search(graph, sources, false, ParallelBfs.NO_VERTICES, level, -1, queue);
+		for (int t : sinks) {
+			if (level[t] >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void blockingFlow(FlowGraph graph, int source) {
+		int depth = 0;
+		int u = source;
+		while (true) {
+			if (isSink[u]) {
+				long bottleNeck = Long.MAX_VALUE;
+				for (int i = 0; i < depth; i++) {
+					bottleNeck = Math.min(bottleNeck, graph.arcResidual(pathArcs[i]));
+				}
+				SolverMetrics.augmentation(bottleNeck);
+				// push, then restart from the tail of the first arc that got saturated
+				int restart = depth;
+				for (int i = 0; i < depth; i++) {
+					graph.push(pathArcs[i], bottleNeck);
+					if (restart == depth && graph.arcResidual(pathArcs[i]) == 0) {
+						restart = i;
+					}
+				}
+				depth = restart;
+				u = graph.arcTail(pathArcs[depth]);
+				continue;
+			}
+			boolean advanced = false;
+			for (int arcs = graph.arcCount(u); currentArc[u] < arcs; currentArc[u]++) {
+				int link = graph.arc(u, currentArc[u]);
+				int v = graph.arcHead(link);
+				if (level[v] == level[u] + 1 && graph.arcResidual(link) > 0) {
+					pathArcs[depth++] = link;
+					u = v;
+					advanced = true;
+					break;
+				}
+			}
+			if (!advanced) { // dead end : no blocking flow goes through u any more
+				if (u == source) {
+					return;
+				}
+				level[u] = -1;
+				u = graph.arcTail(pathArcs[--depth]);
+				currentArc[u]++;
+			}
+		}
+	}
+}
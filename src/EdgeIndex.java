@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+// the edges between two vertices, found without walking the adjacency of either. Vertices and edges are
+// dense int ids (see VertexRegistry and FlowGraph). The pair (tail, head) is packed into a long key of an
+// open addressing hash table with linear probing : keys[slot] holds the pair and first[slot] the first
+// edge of that pair. The other edges of the pair, the parallel rails, follow through next, indexed by edge
+// id, in the order they were added, -1 after the last one. A lookup is O(1) expected, listing the edges of
+// a pair is O(1) per edge and removing an edge walks the edges of its pair only.
+// A removal empties its slot by shifting the following keys of the probe sequence back, so the table
+// never fills up with deleted markers.
+
+class EdgeIndex {
+
+	private static final long EMPTY = -1; // no pair packs to it, vertex ids are not negative
+
+	private long[] keys = emptyKeys(16);
+	private int[] first = new int[16];
+	private int size = 0; // used slots, the table grows when they are three quarters of it
+	private int[] next = new int[16];
+
+	public void add(int tail, int head, int e) {
+		if (e >= next.length) {
+			next = Arrays.copyOf(next, Math.max(e + 1, next.length * 2));
+		}
+		next[e] = -1;
+		long key = key(tail, head);
+		int slot = find(key);
+		if (keys[slot] == key) {
+			int last = first[slot];
+			while (next[last] >= 0) {
+				last = next[last];
+			}
+			next[last] = e;
+			return;
+		}
+		if ((size + 1) * 4 > keys.length * 3) {
+			grow();
+			slot = find(key);
+		}
+		keys[slot] = key;
+		first[slot] = e;
+		size++;
+	}
+
+	// nothing happens if e is not an edge from tail to head
+	public void remove(int tail, int head, int e) {
+		int slot = find(key(tail, head));
+		if (keys[slot] == EMPTY) {
+			return;
+		}
+		if (first[slot] == e) {
+			first[slot] = next[e];
+			if (first[slot] < 0) {
+				delete(slot);
+			}
+		} else {
+			int previous = first[slot];
+			while (next[previous] >= 0 && next[previous] != e) {
+				previous = next[previous];
+			}
+			if (next[previous] != e) {
+				return;
+			}
+			next[previous] = next[e];
+		}
+		next[e] = -1;
+	}
+
+	// the first edge from tail to head, -1 if there is none
+	public int first(int tail, int head) {
+		long key = key(tail, head);
+		int slot = find(key);
+		return keys[slot] == key ? first[slot] : -1;
+	}
+
+	// the edge after e between the same two vertices, -1 if e is the last one
+	public int next(int e) {
+		return next[e];
+	}
+
+	private static long key(int tail, int head) {
+		return (long) tail << 32 | head;
+	}
+
+	private static int hash(long key) {
+		return (int) (key * 0x9E3779B97F4A7C15L >>> 32);
+	}
+
+	// the slot of the key, or the empty slot where it would go
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	// backward shift deletion : a key further in the probe sequence moves into the hole unless its own
+	// home slot lies cyclically between the hole and its current slot
+	private void delete(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+			int home = hash(keys[i]) & mask;
+			if (hole <= i ? hole < home && home <= i : hole < home || home <= i) {
+				continue;
+			}
+			keys[hole] = keys[i];
+			first[hole] = first[i];
+			hole = i;
+		}
+		keys[hole] = EMPTY;
+		size--;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldFirst = first;
+		keys = emptyKeys(oldKeys.length * 2);
+		first = new int[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				first[slot] = oldFirst[i];
+			}
+		}
+	}
+
+	private static long[] emptyKeys(int length) {
+		long[] keys = new long[length];
+		Arrays.fill(keys, EMPTY);
+		return keys;
+	}
+}
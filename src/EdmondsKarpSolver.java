@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+// Ford-Fulkerson with breadth first search, i.e the algorithm of AdjacencyNetwork.findAugmentingPath :
+// each call of augment finds a shortest augmenting path in the residual network (forward edges with
+// capacity - flow > 0 and backward edges with flow > 0) and pushes its bottleneck along it.
+// Shortest paths bound the number of augmentations by O(VE) whatever the capacities are.
+
+public class EdmondsKarpSolver implements MaxFlowSolver {
+
+	private int[] queue = new int[0];
+	private int[] parentArc = new int[0]; // signed link (see FlowGraph.arc) used to reach each vertex, 0 for a source
+	private boolean[] visited = new boolean[0];
+	private boolean[] isSink = new boolean[0];
+
+	public long solve(FlowGraph graph, int[] sources, int[] sinks) {
+		MaxFlowSolver.checkBounded(graph, sources, sinks);
+		while (augment(graph, sources, sinks)) {
+		}
+		return graph.netOutflow(sources);
+	}
+
+	// one breadth first search from all the sources and, if a sink was reached, one augmentation
+	public boolean augment(FlowGraph graph, int[] sources, int[] sinks) {
+		graph.index();
+		int n = graph.vertexCount;
+		if (queue.length < n) {
+			queue = new int[n];
+			parentArc = new int[n];
+			visited = new boolean[n];
+			isSink = new boolean[n];
+		} else {
+			Arrays.fill(visited, 0, n, false);
+		}
+		for (int t : sinks) {
+			isSink[t] = true;
+		}
+		int first = 0, last = 0;
+		long scanned = 0; // for SolverMetrics
+		for (int s : sources) {
+			if (!visited[s]) {
+				queue[last++] = s;
+				visited[s] = true;
+				parentArc[s] = 0;
+			}
+		}
+
+		int found = -1;
+		search: while (first < last) {
+			int visiting = queue[first++];
+			for (int k = 0, arcs = graph.arcCount(visiting); k < arcs; k++) {
+				int link = graph.arc(visiting, k);
+				int v = graph.arcHead(link);
+				scanned++;
+				if (!visited[v] && graph.arcResidual(link) > 0) {
+					visited[v] = true;
+					parentArc[v] = link;
+					queue[last++] = v;
+					if (isSink[v]) {
+						found = v;
+						break search;
+					}
+				}
+			}
+		}
+		for (int t : sinks) {
+			isSink[t] = false;
+		}
+		SolverMetrics.search(last, scanned);
+		if (found < 0) {
+			return false;
+		}
+		updateFlow(graph, found);
+		return true;
+	}
+
+	private void updateFlow(FlowGraph graph, int sink) {
+		long bottleNeck = Long.MAX_VALUE;
+		for (int v = sink; parentArc[v] != 0; v = graph.arcTail(parentArc[v])) {
+			bottleNeck = Math.min(bottleNeck, graph.arcResidual(parentArc[v]));
+		}
+		SolverMetrics.augmentation(bottleNeck);
+		for (int v = sink; parentArc[v] != 0; v = graph.arcTail(parentArc[v])) {
+			graph.push(parentArc[v], bottleNeck);
+		}
+	}
+}
@@ -0,0 +1,252 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// primitive storage for a flow network : vertices and edges are dense ints starting at 0 and every
+// edge attribute lives in its own primitive array indexed by the edge id (longs for the capacity and the
+// flow, ints for the rest). The forward and backward adjacency lists are kept in compressed sparse row
+// form : the edges leaving vertex v are outEdges[outStart[v]] ... outEdges[outStart[v + 1] - 1] and the
+// same goes for the entering edges with inStart/inEdges. The two index arrays are rebuilt lazily (see
+// index()) after the topology changed, so a traversal only ever reads primitive arrays and never boxes a
+// vertex or an edge.
+// A removed edge keeps its id (ids are what the rest of the program knows edges by) : it is left out
+// of the adjacency index and keeps a capacity and a flow of 0.
+// Capacities and flows are longs, so aggregated tonnages do not wrap around : the sums that can still
+// go beyond a long (flow values, costs, the flow push adds up on an edge) are computed with Math.addExact
+// and friends and throw an ArithmeticException instead. An edge with capacity INFINITE has no limit : its
+// residual capacity stays INFINITE whatever flow it carries, and the flow it carries is bounded by the
+// finite edges around it (see MaxFlowSolver.checkBounded).
+// The int views of the networks (Network.getWeight...) show INFINITE as Integer.MAX_VALUE, see narrow
+// and widen.
+// cost is what a unit of flow pays to go through an edge, only MinCostFlowSolver looks at it.
+
+class FlowGraph {
+
+	public static final long INFINITE = Long.MAX_VALUE;
+
+	int vertexCount;
+	int edgeCount;
+
+	// the per-edge arrays may be longer than edgeCount, only the first edgeCount slots are meaningful
+	int[] tail = new int[16];
+	int[] head = new int[16];
+	long[] capacity = new long[16];
+	long[] flow = new long[16];
+	int[] cost = new int[16];
+
+	int[] outStart = new int[1];
+	int[] outEdges = new int[0];
+	int[] inStart = new int[1];
+	int[] inEdges = new int[0];
+
+	private BitSet removed = new BitSet();
+	private int removedCount;
+	private boolean indexed = true;
+
+	public int addVertex() {
+		indexed = false;
+		return vertexCount++;
+	}
+
+	public int addEdge(int from, int to) {
+		if (edgeCount == tail.length) {
+			int length = Math.max(16, tail.length * 2);
+			tail = Arrays.copyOf(tail, length);
+			head = Arrays.copyOf(head, length);
+			capacity = Arrays.copyOf(capacity, length);
+			flow = Arrays.copyOf(flow, length);
+			cost = Arrays.copyOf(cost, length);
+		}
+		tail[edgeCount] = from;
+		head[edgeCount] = to;
+		capacity[edgeCount] = 0;
+		flow[edgeCount] = 0;
+		cost[edgeCount] = 0;
+		indexed = false;
+		return edgeCount++;
+	}
+
+	public void removeEdge(int e) {
+		if (!removed.get(e)) {
+			removed.set(e);
+			removedCount++;
+			capacity[e] = 0;
+			flow[e] = 0;
+			indexed = false;
+		}
+	}
+
+	public boolean isRemoved(int e) {
+		return removed.get(e);
+	}
+
+	public BitSet getRemovedEdges() {
+		return removed;
+	}
+
+	// replaces the edges with arrays read in bulk (see NetworkSnapshot). The adjacency arrays must be
+	// the index of these edges, as index() would build it. A null cost array makes every edge free.
+	void restore(int edgeCount, int[] tail, int[] head, long[] capacity, long[] flow, int[] cost, BitSet removed,
+			int[] outStart, int[] outEdges, int[] inStart, int[] inEdges) {
+		if (outStart.length != vertexCount + 1 || inStart.length != vertexCount + 1) {
+			throw new IllegalArgumentException("the adjacency index is not made for " + vertexCount + " vertices");
+		}
+		this.edgeCount = edgeCount;
+		this.tail = tail;
+		this.head = head;
+		this.capacity = capacity;
+		this.flow = flow;
+		this.cost = cost != null ? cost : new int[tail.length];
+		this.removed = removed;
+		this.removedCount = removed.cardinality();
+		this.outStart = outStart;
+		this.outEdges = outEdges;
+		this.inStart = inStart;
+		this.inEdges = inEdges;
+		indexed = true;
+	}
+
+	// a graph of the same edges sharing every array of this one but the flow, which starts at 0. Nothing
+	// else may be written through it, so that several threads can each solve their own share.
+	public FlowGraph share() {
+		index();
+		FlowGraph share = new FlowGraph();
+		share.vertexCount = vertexCount;
+		share.restore(edgeCount, tail, head, capacity, new long[tail.length], cost, removed, outStart, outEdges,
+				inStart, inEdges);
+		return share;
+	}
+
+	// builds both adjacency indexes with a counting sort over the edge endpoints. This costs
+	// O(vertexCount + edgeCount) and only happens on the first traversal after a change of topology.
+	public void index() {
+		if (indexed) {
+			return;
+		}
+		outStart = new int[vertexCount + 1];
+		inStart = new int[vertexCount + 1];
+		outEdges = new int[edgeCount - removedCount];
+		inEdges = new int[edgeCount - removedCount];
+		buildRows(tail, outStart, outEdges);
+		buildRows(head, inStart, inEdges);
+		indexed = true;
+	}
+
+	private void buildRows(int[] endpoint, int[] start, int[] rows) {
+		for (int e = 0; e < edgeCount; e++) {
+			if (removedCount == 0 || !removed.get(e)) {
+				start[endpoint[e] + 1]++;
+			}
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			start[v + 1] += start[v];
+		}
+		int[] next = Arrays.copyOf(start, vertexCount);
+		for (int e = 0; e < edgeCount; e++) {
+			if (removedCount == 0 || !removed.get(e)) {
+				rows[next[endpoint[e]]++] = e;
+			}
+		}
+	}
+
+	// the residual arcs of a vertex u are numbered 0 ... arcCount(u) - 1 : first the edges leaving u
+	// (residual capacity - flow) then the edges entering u used backwards (residual flow). An arc is
+	// given as a signed link, e + 1 for the edge e used forward and -(e + 1) for e used backwards, so
+	// a path can be stored in a single int per vertex.
+
+	public int arcCount(int u) {
+		return outStart[u + 1] - outStart[u] + inStart[u + 1] - inStart[u];
+	}
+
+	public int arc(int u, int k) {
+		int forward = outStart[u + 1] - outStart[u];
+		if (k < forward) {
+			return outEdges[outStart[u] + k] + 1;
+		}
+		return -(inEdges[inStart[u] + k - forward] + 1);
+	}
+
+	public static int edgeOf(int link) {
+		return link > 0 ? link - 1 : -link - 1;
+	}
+
+	// vertex reached when following the arc
+	public int arcHead(int link) {
+		return link > 0 ? head[link - 1] : tail[-link - 1];
+	}
+
+	// vertex the arc starts from
+	public int arcTail(int link) {
+		return link > 0 ? tail[link - 1] : head[-link - 1];
+	}
+
+	public long arcResidual(int link) {
+		return link > 0 ? getResidualCapacity(link - 1) : flow[-link - 1];
+	}
+
+	// a flow that goes beyond a long, or reaches INFINITE which only a capacity can be, throws
+	public void push(int link, long delta) {
+		if (link > 0) {
+			flow[link - 1] = checkFlow(Math.addExact(flow[link - 1], delta));
+		} else {
+			flow[-link - 1] = Math.subtractExact(flow[-link - 1], delta);
+		}
+	}
+
+	private static long checkFlow(long value) {
+		if (value == INFINITE) {
+			throw new ArithmeticException("long overflow");
+		}
+		return value;
+	}
+
+	// net flow leaving the vertex, i.e the flow value when v is the source
+	public long netOutflow(int v) {
+		index();
+		long value = 0;
+		for (int i = outStart[v]; i < outStart[v + 1]; i++) {
+			value = Math.addExact(value, flow[outEdges[i]]);
+		}
+		for (int i = inStart[v]; i < inStart[v + 1]; i++) {
+			value = Math.subtractExact(value, flow[inEdges[i]]);
+		}
+		return value;
+	}
+
+	// net flow leaving a set of vertices, i.e the flow value when they are the sources
+	public long netOutflow(int[] vertices) {
+		long value = 0;
+		for (int v : vertices) {
+			value = Math.addExact(value, netOutflow(v));
+		}
+		return value;
+	}
+
+	// what the flow stored in the graph costs, removed edges carry none
+	public long totalCost() {
+		long total = 0;
+		for (int e = 0; e < edgeCount; e++) {
+			total = Math.addExact(total, Math.multiplyExact(flow[e], cost[e]));
+		}
+		return total;
+	}
+
+	// INFINITE stays INFINITE whatever the flow
+	public long getResidualCapacity(int e) {
+		return capacity[e] == INFINITE ? INFINITE : capacity[e] - flow[e];
+	}
+
+	// a capacity or a flow seen through an int : INFINITE becomes Integer.MAX_VALUE and anything else
+	// must fit
+	public static int narrow(long value) {
+		return value == INFINITE ? Integer.MAX_VALUE : Math.toIntExact(value);
+	}
+
+	// the other way round, Integer.MAX_VALUE is read as INFINITE
+	public static long widen(int value) {
+		return value == Integer.MAX_VALUE ? INFINITE : value;
+	}
+
+	public void clearFlow() {
+		Arrays.fill(flow, 0, edgeCount, 0);
+	}
+}
@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+// what a Network knows once its flow is set : the value of the flow, the flow on every edge, the
+// vertices still reachable from the sources in the residual network (the source side, by vertex id)
+// and the edges leaving that side. When the flow is maximum these edges are a minimum cut.
+// A result never changes : the network builds it on the first query after a change (setWeight,
+// addEdge, setFlow, a solve ...) and hands out the same one until the next change, so asking again is
+// free and never sees a half updated or stale cut.
+
+public final class FlowResult<Edge> {
+
+	private final long maxFlow;
+	private final ToLongFunction<Edge> flows;
+	private final BitSet sourceSide;
+	private final List<Edge> cutEdges;
+	private final Set<Edge> cut;
+
+	// flows must not be backed by anything the network still writes to, the caller copies them
+	FlowResult(long maxFlow, ToLongFunction<Edge> flows, BitSet sourceSide, ArrayList<Edge> cutEdges) {
+		this.maxFlow = maxFlow;
+		this.flows = flows;
+		this.sourceSide = sourceSide;
+		this.cutEdges = Collections.unmodifiableList(cutEdges);
+		this.cut = Collections.unmodifiableSet(new HashSet<Edge>(cutEdges));
+	}
+
+	// net flow out of the sources
+	public long getMaxFlow() {
+		return maxFlow;
+	}
+
+	// flow on the edge when the result was built
+	public long getFlow(Edge e) {
+		return flows.applyAsLong(e);
+	}
+
+	public boolean isOnSourceSide(int vertexId) {
+		return sourceSide.get(vertexId);
+	}
+
+	// a copy, the result keeps its own
+	public BitSet getSourceSide() {
+		return (BitSet) sourceSide.clone();
+	}
+
+	// in the order they were found
+	public List<Edge> getCutEdges() {
+		return cutEdges;
+	}
+
+	public Set<Edge> getCut() {
+		return cut;
+	}
+}
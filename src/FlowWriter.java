@@ -0,0 +1,317 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// writes the flow of a solved network edge by edge into a channel, through a direct buffer that is
+// only handed to the channel when full. Numbers are written digit by digit and station names are
+// encoded once per station, so a million edges cost no String at all. Formats :
+//
+// text what --quiet has always printed : the max flow (and the total cost when some rail has a cost),
+// one line per edge ("a -> b		capacity : 10		flow : 7", inf for an infinite capacity) and the edges
+// of the cut
+// csv a header line, then from,to,capacity,flow,cost,saturated,cut per edge (a name holding a comma
+// or a quote is quoted), an empty capacity for an infinite one
+// jsonl one object per edge : {"rail":0,"from":"a","to":"b","capacity":10,"flow":7,"cost":0,
+// "saturated":false,"cut":false}, capacity "inf" for an infinite one
+// binary big endian : int magic ('RNFL'), int version, long maxFlow, long totalCost, int stationCount,
+// stationCount times int length + UTF-8 name (length -1 for a station without name), then per edge
+// int rail, int from, int to (station ids), long capacity (Long.MAX_VALUE for infinite), long flow,
+// int cost, byte flags (1 saturated, 2 in the cut), up to the end of the file
+//
+// The filter keeps every edge, only the saturated ones (flow equal to a finite, non zero capacity) or
+// only the edges of the cut.
+
+public class FlowWriter {
+
+	public enum Format {
+		TEXT, CSV, JSONL, BINARY;
+
+		public static Format named(String name) {
+			switch (name) {
+			case "text":
+				return TEXT;
+			case "csv":
+				return CSV;
+			case "jsonl":
+				return JSONL;
+			case "binary":
+				return BINARY;
+			default:
+				throw new IllegalArgumentException("unknown format " + name + " (expected text, csv, jsonl or binary)");
+			}
+		}
+	}
+
+	public enum Filter {
+		ALL, SATURATED, CUT;
+
+		public static Filter named(String name) {
+			switch (name) {
+			case "all":
+				return ALL;
+			case "saturated":
+				return SATURATED;
+			case "cut":
+				return CUT;
+			default:
+				throw new IllegalArgumentException("unknown filter " + name + " (expected all, saturated or cut)");
+			}
+		}
+	}
+
+	private static final int MAGIC = 0x524E464C;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte[] ARROW = ascii(" -> ");
+	private static final byte[] INF = ascii("inf");
+	private static final byte[] TRUE = ascii("true");
+	private static final byte[] FALSE = ascii("false");
+
+	private final WritableByteChannel channel;
+	private final Format format;
+	private final Filter filter;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final byte[] digits = new byte[20];
+
+	// station names by Node id, encoded for the format (escaped for jsonl, quoted when needed for csv)
+	private byte[][] names;
+
+	// the channel is not closed, the caller owns it
+	public FlowWriter(WritableByteChannel channel, Format format, Filter filter) {
+		this.channel = channel;
+		this.format = format;
+		this.filter = filter;
+	}
+
+	private static boolean hasCosts(Network<Node, Integer> network) {
+		for (int e : network.getEdges()) {
+			if (network.getCost(e) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void write(Network<Node, Integer> network) throws IOException {
+		FlowResult<Integer> result = network.getResult();
+		encodeNames(network);
+		switch (format) {
+		case TEXT:
+			put("The max flow value of the network is ");
+			put(result.getMaxFlow());
+			if (hasCosts(network)) {
+				put(", its total cost is ");
+				put(network.getTotalCost());
+			}
+			put(".\n\n");
+			put("The flow distribution accross edges is : \n\n");
+			break;
+		case CSV:
+			put("from,to,capacity,flow,cost,saturated,cut\n");
+			break;
+		case BINARY:
+			putInt(MAGIC);
+			putInt(VERSION);
+			putLong(result.getMaxFlow());
+			putLong(network.getTotalCost());
+			putInt(names.length);
+			for (byte[] name : names) {
+				putInt(name == null ? -1 : name.length);
+				if (name != null) {
+					put(name);
+				}
+			}
+			break;
+		default:
+			break;
+		}
+
+		for (int e : network.getEdges()) {
+			int from = network.getSource(e).id;
+			int to = network.getDest(e).id;
+			long capacity = network.getCapacity(e);
+			long flow = network.getFlowValue(e);
+			boolean saturated = capacity != FlowGraph.INFINITE && capacity > 0 && flow == capacity;
+			boolean inCut = result.isOnSourceSide(from) && !result.isOnSourceSide(to);
+			if (filter == Filter.SATURATED && !saturated || filter == Filter.CUT && !inCut) {
+				continue;
+			}
+			switch (format) {
+			case TEXT:
+				name(from);
+				put(ARROW);
+				name(to);
+				put("\t\tcapacity : ");
+				capacity(capacity);
+				put("\t\tflow : ");
+				put(flow);
+				put((byte) '\n');
+				break;
+			case CSV:
+				name(from);
+				put((byte) ',');
+				name(to);
+				put((byte) ',');
+				if (capacity != FlowGraph.INFINITE) {
+					put(capacity);
+				}
+				put((byte) ',');
+				put(flow);
+				put((byte) ',');
+				put(network.getCost(e));
+				put((byte) ',');
+				put(saturated ? TRUE : FALSE);
+				put((byte) ',');
+				put(inCut ? TRUE : FALSE);
+				put((byte) '\n');
+				break;
+			case JSONL:
+				put("{\"rail\":");
+				put(e);
+				put(",\"from\":");
+				name(from);
+				put(",\"to\":");
+				name(to);
+				put(",\"capacity\":");
+				if (capacity == FlowGraph.INFINITE) {
+					put("\"inf\"");
+				} else {
+					put(capacity);
+				}
+				put(",\"flow\":");
+				put(flow);
+				put(",\"cost\":");
+				put(network.getCost(e));
+				put(",\"saturated\":");
+				put(saturated ? TRUE : FALSE);
+				put(",\"cut\":");
+				put(inCut ? TRUE : FALSE);
+				put("}\n");
+				break;
+			case BINARY:
+				putInt(e);
+				putInt(from);
+				putInt(to);
+				putLong(capacity);
+				putLong(flow);
+				putInt(network.getCost(e));
+				room(1);
+				buffer.put((byte) ((saturated ? 1 : 0) | (inCut ? 2 : 0)));
+				break;
+			}
+		}
+
+		if (format == Format.TEXT) {
+			put("\nHere are the edges to obtain minimum cut : ");
+			for (int e : result.getCut()) {
+				name(network.getSource(e).id);
+				put(ARROW);
+				name(network.getDest(e).id);
+				put("  ");
+			}
+		}
+		flush();
+	}
+
+	private void encodeNames(Network<Node, Integer> network) {
+		int count = 0;
+		for (Node v : network.getVertices()) {
+			count = Math.max(count, v.id + 1);
+		}
+		names = new byte[count][];
+		for (Node v : network.getVertices()) {
+			String name = network.getNameOrNullByVertex(v);
+			if (format == Format.JSONL) {
+				StringBuilder json = new StringBuilder();
+				BatchSolver.string(json, name);
+				name = json.toString();
+			} else if (format == Format.CSV && name != null && (name.indexOf(',') >= 0 || name.indexOf('"') >= 0
+					|| name.indexOf('\n') >= 0)) {
+				name = '"' + name.replace("\"", "\"\"") + '"';
+			} else if (format == Format.TEXT && name == null) {
+				name = "null"; // what printing the name has always shown
+			}
+			names[v.id] = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	private void name(int id) throws IOException {
+		if (names[id] != null) {
+			put(names[id]);
+		}
+	}
+
+	private void capacity(long capacity) throws IOException {
+		if (capacity == FlowGraph.INFINITE) {
+			put(INF);
+		} else {
+			put(capacity);
+		}
+	}
+
+	// decimal digits of the value, right to left into digits and then into the buffer
+	private void put(long value) throws IOException {
+		room(digits.length + 1);
+		if (value < 0) {
+			buffer.put((byte) '-');
+		}
+		int i = digits.length;
+		do {
+			digits[--i] = (byte) ('0' + Math.abs(value % 10));
+			value /= 10;
+		} while (value != 0);
+		buffer.put(digits, i, digits.length - i);
+	}
+
+	private void put(String ascii) throws IOException {
+		room(ascii.length());
+		for (int i = 0; i < ascii.length(); i++) {
+			buffer.put((byte) ascii.charAt(i));
+		}
+	}
+
+	private void put(byte[] bytes) throws IOException {
+		for (int done = 0; done < bytes.length;) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int chunk = Math.min(bytes.length - done, buffer.remaining());
+			buffer.put(bytes, done, chunk);
+			done += chunk;
+		}
+	}
+
+	private void put(byte b) throws IOException {
+		room(1);
+		buffer.put(b);
+	}
+
+	private void putInt(int value) throws IOException {
+		room(4);
+		buffer.putInt(value);
+	}
+
+	private void putLong(long value) throws IOException {
+		room(8);
+		buffer.putLong(value);
+	}
+
+	private void room(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+}
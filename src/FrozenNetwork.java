@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// read-only copy of a Network that any number of threads can solve at once, for any terminals, without
+// a lock. The networks themselves are not thread safe : a solve writes the flows in place (in the
+// HashMaps of AdjacencyNetwork, in the FlowGraph of CompactNetwork), so nothing may read them while it
+// runs. Here the stations, the rails and their capacities are copied once into a FlowGraph that is
+// never written again (the topology), and each solve gets a FlowGraph of its own sharing these arrays
+// but with its own flow array (see FlowGraph.share). The flows come back in a FlowResult, which does not
+// change either.
+// A frozen network does not follow the network it was made from : freeze it again to see a change.
+// Vertices have their own ids here (idOf), in the order of network.getVertices(), and edge i of the
+// topology is the i-th of network.getEdges().
+
+public class FrozenNetwork<Vertex, Edge> {
+
+	private final VertexRegistry<Vertex> registry = new VertexRegistry<Vertex>();
+	private final ArrayList<Edge> edges;
+	private final HashMap<Edge, Integer> edgeIds = new HashMap<Edge, Integer>();
+	private final FlowGraph topology = new FlowGraph();
+	private final EdgeIndex pairs = new EdgeIndex();
+	private final List<Vertex> sources;
+	private final List<Vertex> sinks;
+	private final FlowResult<Edge> result;
+	private final String solverName;
+	// solvers keep scratch arrays between calls, so each thread has its own
+	private final ThreadLocal<MaxFlowSolver> solvers;
+
+	// the network must not change while it is copied. Its current result is kept (see getResult), the
+	// solves use the named solver (null for dinic).
+	public FrozenNetwork(Network<Vertex, Edge> network, String solverName) {
+		for (Vertex v : network.getVertices()) {
+			registry.intern(v);
+			topology.addVertex();
+		}
+		for (String name : network.getNames()) {
+			registry.name(name, network.getVertexByName(name));
+		}
+		edges = new ArrayList<Edge>(network.getEdges());
+		for (int i = 0; i < edges.size(); i++) {
+			Edge e = edges.get(i);
+			edgeIds.put(e, i);
+			topology.addEdge(registry.idOf(network.getSource(e)), registry.idOf(network.getDest(e)));
+			pairs.add(topology.tail[i], topology.head[i], i);
+			topology.capacity[i] = network.getCapacity(e);
+			topology.cost[i] = network.getCost(e);
+		}
+		topology.index();
+		sources = new ArrayList<Vertex>(network.getSources());
+		sinks = new ArrayList<Vertex>(network.getSinks());
+		result = network.getResult();
+		this.solverName = solverName == null ? "dinic" : solverName;
+		solvers = ThreadLocal.withInitial(() -> MaxFlowSolver.named(this.solverName));
+	}
+
+	public FrozenNetwork(Network<Vertex, Edge> network) {
+		this(network, null);
+	}
+
+	// the result of the network when it was frozen, for its own terminals
+	public FlowResult<Edge> getResult() {
+		return result;
+	}
+
+	// a maximum flow between these terminals. The source side of the result is by id (see idOf).
+	public FlowResult<Edge> solve(Collection<Vertex> sources, Collection<Vertex> sinks) {
+		return solve(sources, sinks, Collections.<Edge>emptyList());
+	}
+
+	// the same as if the removed edges were not there, they get their own capacity array of the solve
+	public FlowResult<Edge> solve(Collection<Vertex> sources, Collection<Vertex> sinks, Collection<Edge> removed) {
+		int[] sourceIds = ids(sources);
+		int[] sinkIds = ids(sinks);
+		HashSet<Vertex> sourceSet = new HashSet<Vertex>(sources);
+		for (Vertex v : sinks) {
+			if (sourceSet.contains(v)) {
+				throw new IllegalArgumentException(describe(v) + " cannot be both a source and a sink");
+			}
+		}
+		FlowGraph graph = topology.share();
+		BitSet removedIds = new BitSet();
+		if (!removed.isEmpty()) {
+			graph.capacity = topology.capacity.clone();
+			for (Edge e : removed) {
+				removedIds.set(edgeId(e));
+				graph.capacity[edgeId(e)] = 0;
+			}
+		}
+		long maxFlow = solvers.get().solve(graph, sourceIds, sinkIds);
+
+		int n = topology.vertexCount;
+		int[] distance = new int[n];
+		int[] order = new int[n];
+		int reached = new ParallelBfs().search(graph, sourceIds, false, ParallelBfs.NO_VERTICES, distance, -1,
+				order);
+		BitSet sourceSide = new BitSet(n);
+		for (int i = 0; i < reached; i++) {
+			sourceSide.set(order[i]);
+		}
+		ArrayList<Edge> cut = new ArrayList<Edge>();
+		for (int i = 0; i < edges.size(); i++) {
+			if (sourceSide.get(topology.tail[i]) && !sourceSide.get(topology.head[i]) && !removedIds.get(i)) {
+				cut.add(edges.get(i));
+			}
+		}
+		long[] flows = graph.flow;
+		return new FlowResult<Edge>(maxFlow, e -> flows[edgeId(e)], sourceSide, cut);
+	}
+
+	public FlowResult<Edge> solve() {
+		return solve(sources, sinks);
+	}
+
+	private int[] ids(Collection<Vertex> vertices) {
+		if (vertices.isEmpty()) {
+			throw new IllegalArgumentException("a flow needs at least one source and one sink");
+		}
+		int[] ids = new int[vertices.size()];
+		int i = 0;
+		for (Vertex v : vertices) {
+			ids[i] = registry.idOf(v);
+			if (ids[i++] < 0) {
+				throw new IllegalArgumentException(describe(v) + " is not in the network");
+			}
+		}
+		return ids;
+	}
+
+	private String describe(Vertex v) {
+		String name = registry.nameOf(v);
+		return name != null ? "station " + name : "vertex " + v;
+	}
+
+	private int edgeId(Edge e) {
+		Integer i = edgeIds.get(e);
+		if (i == null) {
+			throw new IllegalArgumentException("edge " + e + " is not in the network");
+		}
+		return i;
+	}
+
+	// -1 if the vertex is not in the network
+	public int idOf(Vertex v) {
+		return registry.idOf(v);
+	}
+
+	public List<Vertex> getVertices() {
+		return registry.vertices();
+	}
+
+	public List<Edge> getEdges() {
+		return Collections.unmodifiableList(edges);
+	}
+
+	public Vertex getVertexByName(String name) {
+		return registry.byName(name);
+	}
+
+	public String getNameOrNullByVertex(Vertex v) {
+		return registry.nameOf(v);
+	}
+
+	public Edge getEdgeFromVertices(Vertex src, Vertex dest) {
+		int v0 = registry.idOf(src);
+		int v1 = registry.idOf(dest);
+		if (v0 < 0 || v1 < 0) {
+			return null;
+		}
+		int e = pairs.first(v0, v1);
+		return e < 0 ? null : edges.get(e);
+	}
+
+	// every edge from src to dest, in the order of the network's edges
+	public List<Edge> getEdgesFromVertices(Vertex src, Vertex dest) {
+		ArrayList<Edge> found = new ArrayList<Edge>();
+		int v0 = registry.idOf(src);
+		int v1 = registry.idOf(dest);
+		if (v0 >= 0 && v1 >= 0) {
+			for (int e = pairs.first(v0, v1); e >= 0; e = pairs.next(e)) {
+				found.add(edges.get(e));
+			}
+		}
+		return found;
+	}
+
+	public Vertex getSource(Edge e) {
+		return registry.vertex(topology.tail[edgeId(e)]);
+	}
+
+	public Vertex getDest(Edge e) {
+		return registry.vertex(topology.head[edgeId(e)]);
+	}
+
+	public long getCapacity(Edge e) {
+		return topology.capacity[edgeId(e)];
+	}
+
+	public List<Vertex> getSources() {
+		return Collections.unmodifiableList(sources);
+	}
+
+	public List<Vertex> getSinks() {
+		return Collections.unmodifiableList(sinks);
+	}
+}
@@ -1,52 +1,87 @@
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 // when an object of this class is created, two networks are created : the solution network runs both maxFlow and minCut algorithms
 // at the instantiation of the object and later serves to compare the user input.
+// When the rails have costs, the maximum flow computed is the cheapest one.
 
 public class Game {
 
-	private Network<Node, Integer> solutionNetwork = new AdjacencyNetwork<Node, Integer>();
+	private Network<Node, Integer> solutionNetwork;
 	private ArrayList<Integer> userCutsHistory;
 	private double xmax;
 	private double ymax;
+	private StationIndex stationIndex = null; // built by the first getStationIndex, the batch runs never need it
+	private MinCuts<Node, Integer> minCuts = null; // built by the first getMinCuts
 
 	public Game(InputStream is, InputStream is2) throws NumberFormatException, IOException {
+		this(is, is2, new AdjacencyNetwork<Node, Integer>());
+	}
+
+	// the network given here must be empty, it is filled from the two streams and then solved
+	public Game(InputStream is, InputStream is2, Network<Node, Integer> network)
+			throws NumberFormatException, IOException {
+		this(is, is2, network, null, null);
+	}
+
+	// same with the terminals given by station names, null keeps the station named Source (or Sink)
+	public Game(InputStream is, InputStream is2, Network<Node, Integer> network, List<String> sources,
+			List<String> sinks) throws NumberFormatException, IOException {
 
-		BufferedReader br = new BufferedReader(new InputStreamReader(is));
-		String str = null;
-		float xmax =0 , ymax =0;
-		while ((str = br.readLine()) != null) {
-			String[] parts = str.split("\\s+");
-			xmax = (Float.parseFloat(parts[1])>xmax) ? Float.parseFloat(parts[1]) : xmax;
-			ymax = (Float.parseFloat(parts[2])>ymax) ? Float.parseFloat(parts[2]) : ymax;
-			Node v = new Node(Float.parseFloat(parts[1]), Float.parseFloat(parts[2]));
-			solutionNetwork.addVertex(v); 
-			solutionNetwork.nameVertex((String)parts[0], v);
+		solutionNetwork = network;
+
+		long start = System.nanoTime();
+		NetworkLoader loader = new NetworkLoader(solutionNetwork);
+		loader.readVertices(is);
+		loader.readEdges(is2);
+		this.xmax = loader.getMaxX();
+		this.ymax = loader.getMaxY();
+		setTerminals(solutionNetwork, sources, sinks);
+		long loaded = System.nanoTime();
+		SolverMetrics.phase(SolverMetrics.Phase.LOAD, loaded - start);
+
+		if (loader.hasCosts()) {
+			solutionNetwork.computeMinCostFlow();
+		} else {
+			solutionNetwork.computeMaxFlow();
 		}
+		long solved = System.nanoTime();
+		SolverMetrics.phase(SolverMetrics.Phase.SOLVE, solved - loaded);
+		solutionNetwork.computeMinCut();
+		SolverMetrics.phase(SolverMetrics.Phase.CUT, System.nanoTime() - solved);
+		userCutsHistory = new ArrayList<Integer>();
+	}
+	
+	// a network that is already solved, e.g read back by NetworkSnapshot
+	public Game(Network<Node, Integer> solvedNetwork, double xmax, double ymax) {
+		solutionNetwork = solvedNetwork;
 		this.xmax = xmax;
 		this.ymax = ymax;
-		BufferedReader br2 = new BufferedReader(new InputStreamReader(is2));
-		String str2 = null;
-		int i = 0;
-		while ((str2 = br2.readLine()) != null) {
-			String[] parts = str2.split("\\s+");
-			Node[] list = { solutionNetwork.getVertexByName(parts[0]) , solutionNetwork.getVertexByName(parts[1]) };
-			Integer currentWeight = Integer.parseInt(parts[2]);
-			solutionNetwork.addEdge(i, list);
-			solutionNetwork.setWeight(i, currentWeight);
-			i++;
+		userCutsHistory = new ArrayList<Integer>();
+	}
+
+	public static void setTerminals(Network<Node, Integer> network, List<String> sources, List<String> sinks) {
+		if (sources != null || sinks != null) {
+			network.setTerminals(sources == null ? network.getSources() : stations(network, sources),
+					sinks == null ? network.getSinks() : stations(network, sinks));
 		}
+	}
 
-		solutionNetwork.computeMaxFlow();
-		solutionNetwork.computeMinCut();
-		userCutsHistory = new ArrayList<Integer>();
+	private static ArrayList<Node> stations(Network<Node, Integer> network, List<String> names) {
+		ArrayList<Node> stations = new ArrayList<Node>();
+		for (String name : names) {
+			Node v = network.getVertexByName(name);
+			if (v == null) {
+				throw new IllegalArgumentException("unknown station " + name);
+			}
+			stations.add(v);
+		}
+		return stations;
 	}
-	
+
 	public double getMaxX() {
 		return this.xmax;
 	}
@@ -59,13 +94,25 @@ public class Game {
 		userCutsHistory.add(e);
 	}
 
+	// whether the user's rails are a minimum cut, any of them and not only the one getOptimalCut gives
 	public boolean verifyCut(HashSet<Integer> userCut) {
-		HashSet<Integer> optimalCut = solutionNetwork.getOptimalCut();
-		if (userCut.equals(optimalCut)) {
-			return true;
-		} else {
-			return false;
+		return getMinCuts().isMinimumCut(userCut);
+	}
+
+	// every minimum cut of the solved network, and which rails are in all, some or none of them
+	public MinCuts<Node, Integer> getMinCuts() {
+		if (minCuts == null) {
+			minCuts = new MinCuts<Node, Integer>(solutionNetwork);
+		}
+		return minCuts;
+	}
+
+	// where the stations and rails are on the drawn map, for hit-testing and culling
+	public StationIndex getStationIndex() {
+		if (stationIndex == null) {
+			stationIndex = new StationIndex(solutionNetwork, xmax, ymax);
 		}
+		return stationIndex;
 	}
 
 	public Network<Node, Integer> getSolutionNetwork() {
@@ -0,0 +1,416 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// the minimum cut between every pair of stations, summed up in a Gomory-Hu tree : a tree on the stations
+// where the lightest edge on the path from a to b weighs as much as a minimum cut between a and b, and
+// removing that edge splits the stations into the two sides of such a cut. Building it takes n - 1
+// maximum flows (Gusfield's algorithm, which never contracts the network) instead of one per pair, and
+// afterwards a pair is answered in O(log n) by jumping up the tree (binary lifting).
+// Such a tree only exists when cutting a from b costs as much as cutting b from a, so the rails are
+// taken as usable both ways : a rail of capacity c counts for c between its two stations whatever its
+// direction. The tree is a snapshot, later changes to the network are not seen.
+// Stations joined by rails of infinite capacity can never be separated : they are merged before the
+// flows are computed and hang under the first of them with an INFINITE edge.
+//
+// The flows of Gusfield's algorithm depend on each other (the flow of station s goes to its parent in
+// the tree built so far, which the cuts found before may change) but most of the time they do not :
+// the next flows are computed in parallel, one per worker, with the parents they have now, then applied
+// in order, and only a flow whose parent was changed by the ones applied before it is computed again.
+// The tree is the one the sequential algorithm builds.
+
+public class GomoryHuTree<Vertex, Edge> {
+
+	public static final long INFINITE = Long.MAX_VALUE;
+
+	private final ArrayList<Vertex> vertices;
+	private final Map<Vertex, Integer> ids = new HashMap<Vertex, Integer>();
+	private final ArrayList<Edge> edges;
+	private final int[] edgeTail;
+	private final int[] edgeHead;
+	private final long[] edgeCapacity;
+
+	// the tree, rooted at vertex 0 : parent[0] is -1 and weight[v] is the cut between v and its parent
+	private final int[] parent;
+	private final long[] weight;
+
+	// for the queries : up[k][v] is the ancestor 2^k levels above v (or the root) and lightest[k][v] the
+	// vertex whose edge to its parent is the lightest of these 2^k edges. v is in the subtree of c when
+	// enter[c] <= enter[v] < exit[c].
+	private int[][] up;
+	private int[][] lightest;
+	private int[] depth;
+	private int[] enter;
+	private int[] exit;
+	private final ConcurrentHashMap<Integer, List<Edge>> cuts = new ConcurrentHashMap<Integer, List<Edge>>();
+
+	public GomoryHuTree(Network<Vertex, Edge> network) {
+		this(network, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	// each worker needs its own solver, so they are created from the name (null for dinic)
+	public GomoryHuTree(Network<Vertex, Edge> network, String solverName, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("a Gomory-Hu tree needs at least one thread");
+		}
+		vertices = new ArrayList<Vertex>(network.getVertices());
+		for (int v = 0; v < vertices.size(); v++) {
+			ids.put(vertices.get(v), v);
+		}
+		edges = new ArrayList<Edge>(network.getEdges());
+		edgeTail = new int[edges.size()];
+		edgeHead = new int[edges.size()];
+		edgeCapacity = new long[edges.size()];
+		for (int i = 0; i < edges.size(); i++) {
+			Edge e = edges.get(i);
+			edgeTail[i] = ids.get(network.getSource(e));
+			edgeHead[i] = ids.get(network.getDest(e));
+			edgeCapacity[i] = network.getCapacity(e);
+		}
+		parent = new int[vertices.size()];
+		weight = new long[vertices.size()];
+		if (vertices.size() > 0) {
+			build(solverName == null ? "dinic" : solverName, threads);
+			index();
+		}
+	}
+
+	private void build(String solverName, int threads) {
+		int n = vertices.size();
+		// stations joined by infinite rails are merged into components, represented by their first station
+		int[] leader = new int[n];
+		for (int v = 0; v < n; v++) {
+			leader[v] = v;
+		}
+		for (int i = 0; i < edgeCapacity.length; i++) {
+			if (edgeCapacity[i] == FlowGraph.INFINITE) {
+				leader[find(leader, edgeTail[i])] = find(leader, edgeHead[i]);
+			}
+		}
+		int[] component = new int[n];
+		int[] componentOfLeader = new int[n];
+		Arrays.fill(componentOfLeader, -1);
+		int[] representative = new int[n];
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			int l = find(leader, v);
+			if (componentOfLeader[l] < 0) {
+				componentOfLeader[l] = count;
+				representative[count++] = v;
+			}
+			component[v] = componentOfLeader[l];
+		}
+
+		// the components and the rails between them, each rail as a pair of opposite edges
+		FlowGraph template = new FlowGraph();
+		for (int c = 0; c < count; c++) {
+			template.addVertex();
+		}
+		for (int i = 0; i < edgeCapacity.length; i++) {
+			int from = component[edgeTail[i]];
+			int to = component[edgeHead[i]];
+			if (from != to && edgeCapacity[i] > 0) {
+				int forward = template.addEdge(from, to);
+				int backward = template.addEdge(to, from);
+				template.capacity[forward] = edgeCapacity[i];
+				template.capacity[backward] = edgeCapacity[i];
+			}
+		}
+		template.index();
+
+		// Gusfield's algorithm on the components, rooted at component 0
+		int[] p = new int[count];
+		long[] cut = new long[count];
+		int[] target = new int[count]; // the parent the flow in value and side was computed for, -1 if none
+		long[] value = new long[count];
+		int[][] side = new int[count][];
+		int[] inSide = new int[count];
+		Arrays.fill(target, -1);
+		Arrays.fill(inSide, -1);
+		Worker[] workers = new Worker[Math.max(1, Math.min(threads, count - 1))];
+		for (int w = 0; w < workers.length; w++) {
+			workers[w] = new Worker(template, MaxFlowSolver.named(solverName));
+		}
+		ExecutorService pool = workers.length > 1 ? Executors.newFixedThreadPool(workers.length) : null;
+		try {
+			int s = 1;
+			while (s < count) {
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for (int j = s; j < count && j < s + workers.length; j++) {
+					if (target[j] != p[j]) {
+						final int step = j;
+						final int t = p[j];
+						final Worker worker = workers[tasks.size()];
+						tasks.add(() -> {
+							value[step] = worker.flow(step, t);
+							side[step] = worker.sourceSide(step);
+							target[step] = t;
+							return null;
+						});
+					}
+				}
+				run(pool, tasks);
+
+				// the flows are applied in order as long as they were computed for the right parent
+				while (s < count && target[s] == p[s]) {
+					int t = p[s];
+					for (int v : side[s]) {
+						inSide[v] = s;
+					}
+					cut[s] = value[s];
+					for (int i = 0; i < count; i++) {
+						if (i != s && inSide[i] == s && p[i] == t) {
+							p[i] = s;
+						}
+					}
+					if (inSide[p[t]] == s) {
+						p[s] = p[t];
+						p[t] = s;
+						cut[s] = cut[t];
+						cut[t] = value[s];
+					}
+					side[s] = null;
+					s++;
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		// back to the stations
+		for (int v = 0; v < n; v++) {
+			int c = component[v];
+			if (representative[c] != v) {
+				parent[v] = representative[c];
+				weight[v] = INFINITE;
+			} else if (c == 0) {
+				parent[v] = -1;
+				weight[v] = INFINITE;
+			} else {
+				parent[v] = representative[p[c]];
+				weight[v] = cut[c];
+			}
+		}
+	}
+
+	private static int find(int[] leader, int v) {
+		while (leader[v] != v) {
+			leader[v] = leader[leader[v]];
+			v = leader[v];
+		}
+		return v;
+	}
+
+	private static void run(ExecutorService pool, List<Callable<Void>> tasks) {
+		try {
+			if (pool == null) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+				return;
+			}
+			for (Future<Void> result : pool.invokeAll(tasks)) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Gomory-Hu tree interrupted", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+					: new IllegalStateException(e.getCause());
+		} catch (Exception e) {
+			throw e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+		}
+	}
+
+	// the flows of one thread : its own copy of the flow array, the topology is shared
+	private static class Worker {
+
+		private final FlowGraph graph;
+		private final MaxFlowSolver solver;
+		private final ParallelBfs bfs = new ParallelBfs();
+		private final int[] distance;
+		private final int[] order;
+
+		Worker(FlowGraph template, MaxFlowSolver solver) {
+			graph = template.share();
+			this.solver = solver;
+			distance = new int[template.vertexCount];
+			order = new int[template.vertexCount];
+		}
+
+		long flow(int s, int t) {
+			graph.clearFlow();
+			return solver.solve(graph, new int[] { s }, new int[] { t });
+		}
+
+		// the vertices still reachable from s in the residual graph of the last flow
+		int[] sourceSide(int s) {
+			int reached = bfs.search(graph, new int[] { s }, false, ParallelBfs.NO_VERTICES, distance, -1, order);
+			return Arrays.copyOf(order, reached);
+		}
+	}
+
+	private void index() {
+		int n = vertices.size();
+		int[] childStart = new int[n + 1];
+		for (int v = 1; v < n; v++) {
+			childStart[parent[v] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			childStart[v + 1] += childStart[v];
+		}
+		int[] children = new int[Math.max(0, n - 1)];
+		int[] next = Arrays.copyOf(childStart, n);
+		for (int v = 1; v < n; v++) {
+			children[next[parent[v]]++] = v;
+		}
+
+		// depth first, without recursion : next[v] is the next child of v to visit
+		depth = new int[n];
+		enter = new int[n];
+		exit = new int[n];
+		System.arraycopy(childStart, 0, next, 0, n);
+		int[] stack = new int[n];
+		int top = 0;
+		int time = 0;
+		stack[top++] = 0;
+		enter[0] = time++;
+		while (top > 0) {
+			int u = stack[top - 1];
+			if (next[u] < childStart[u + 1]) {
+				int c = children[next[u]++];
+				depth[c] = depth[u] + 1;
+				enter[c] = time++;
+				stack[top++] = c;
+			} else {
+				exit[u] = time;
+				top--;
+			}
+		}
+
+		int levels = 1;
+		while ((1 << levels) < n) {
+			levels++;
+		}
+		up = new int[levels][n];
+		lightest = new int[levels][n];
+		for (int v = 0; v < n; v++) {
+			up[0][v] = v == 0 ? 0 : parent[v];
+			lightest[0][v] = v;
+		}
+		for (int k = 1; k < levels; k++) {
+			for (int v = 0; v < n; v++) {
+				int middle = up[k - 1][v];
+				up[k][v] = up[k - 1][middle];
+				lightest[k][v] = lighter(lightest[k - 1][v], lightest[k - 1][middle]);
+			}
+		}
+	}
+
+	private int lighter(int x, int y) {
+		return x < 0 || weight[y] < weight[x] ? y : x;
+	}
+
+	// the vertex whose edge to its parent is the lightest on the path from a to b
+	private int lightestOnPath(int a, int b) {
+		int best = -1;
+		if (depth[a] < depth[b]) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		for (int k = up.length - 1; k >= 0; k--) {
+			if (depth[a] - (1 << k) >= depth[b]) {
+				best = lighter(best, lightest[k][a]);
+				a = up[k][a];
+			}
+		}
+		if (a == b) {
+			return best;
+		}
+		for (int k = up.length - 1; k >= 0; k--) {
+			if (up[k][a] != up[k][b]) {
+				best = lighter(best, lightest[k][a]);
+				best = lighter(best, lightest[k][b]);
+				a = up[k][a];
+				b = up[k][b];
+			}
+		}
+		return lighter(lighter(best, a), b);
+	}
+
+	private int id(Vertex v) {
+		Integer id = ids.get(v);
+		if (id == null) {
+			throw new IllegalArgumentException("vertex " + v + " is not in the network");
+		}
+		return id;
+	}
+
+	private int lightestBetween(Vertex a, Vertex b) {
+		int x = id(a);
+		int y = id(b);
+		if (x == y) {
+			throw new IllegalArgumentException("a cut needs two different stations");
+		}
+		return lightestOnPath(x, y);
+	}
+
+	// value of a minimum cut between a and b, INFINITE when rails of infinite capacity join them
+	public long minCut(Vertex a, Vertex b) {
+		return weight[lightestBetween(a, b)];
+	}
+
+	// the rails of a minimum cut between a and b, in both directions. The list is computed once per edge
+	// of the tree, in O(E), and shared by every pair this edge separates.
+	public List<Edge> cutEdges(Vertex a, Vertex b) {
+		int c = lightestBetween(a, b);
+		if (weight[c] == INFINITE) {
+			throw new IllegalStateException("no cut separates " + a + " from " + b
+					+ " : rails with infinite capacity join them");
+		}
+		return cuts.computeIfAbsent(c, this::crossing);
+	}
+
+	// the rails with one end in the subtree of c and the other outside
+	private List<Edge> crossing(int c) {
+		ArrayList<Edge> crossing = new ArrayList<Edge>();
+		for (int i = 0; i < edges.size(); i++) {
+			if (edgeCapacity[i] > 0 && inSubtree(edgeTail[i], c) != inSubtree(edgeHead[i], c)) {
+				crossing.add(edges.get(i));
+			}
+		}
+		return Collections.unmodifiableList(crossing);
+	}
+
+	private boolean inSubtree(int v, int c) {
+		return enter[c] <= enter[v] && enter[v] < exit[c];
+	}
+
+	// the tree itself : every station but the first has a parent, null for the first
+	public Vertex getParent(Vertex v) {
+		int p = parent[id(v)];
+		return p < 0 ? null : vertices.get(p);
+	}
+
+	// value of the minimum cut between v and its parent
+	public long getParentCut(Vertex v) {
+		return weight[id(v)];
+	}
+
+	public List<Vertex> getVertices() {
+		return Collections.unmodifiableList(vertices);
+	}
+}
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+// keeps a maximum flow up to date when the capacity of one edge changes, starting from the current
+// flow instead of zero.
+// - increase : the current flow is still valid, the solver just looks for the augmenting paths the
+// extra capacity opened (all the solvers accept a valid flow as starting point).
+// - decrease below the flow of the edge (u -> v) : the edge now carries the excess too much, so u
+// receives more than it sends and v sends more than it receives. The excess is first rerouted from u
+// to v around the edge, which keeps the flow value. What cannot be rerouted is sent back from u to
+// the sources and pulled from the sinks to v along residual paths, lowering the flow value by the
+// same amount. A final pass of the solver then finds whatever augmenting path is left.
+// Each residual path costs one breadth first search, so a small change costs a few traversals
+// instead of a full max flow.
+// An update that fails (the max flow becomes infinite, a flow goes beyond a long) leaves the graph as it
+// was : the flows are saved before anything changes, a copy of one array, and put back with the old
+// capacity before the exception goes on.
+
+public class IncrementalMaxFlow {
+
+	private int[] queue = new int[0];
+	private int[] parentArc = new int[0]; // 0 for the vertices the search started from
+	private boolean[] visited = new boolean[0];
+	private boolean[] isTarget = new boolean[0];
+	private long[] savedFlow = new long[0];
+
+	public void setCapacity(FlowGraph graph, int e, long capacity, int[] sources, int[] sinks, MaxFlowSolver solver) {
+		graph.index();
+		long oldCapacity = graph.capacity[e];
+		if (savedFlow.length < graph.edgeCount) {
+			savedFlow = new long[graph.flow.length];
+		}
+		System.arraycopy(graph.flow, 0, savedFlow, 0, graph.edgeCount);
+		try {
+			long excess = graph.flow[e] - capacity;
+			graph.capacity[e] = capacity;
+			if (excess > 0) {
+				graph.flow[e] = capacity;
+				if (!rebalance(graph, graph.tail[e], graph.head[e], excess, sources, sinks)) {
+					// cannot happen with a valid flow to start from, but a valid flow is always one call away
+					graph.clearFlow();
+				}
+			}
+			solver.solve(graph, sources, sinks);
+		} catch (RuntimeException x) {
+			graph.capacity[e] = oldCapacity;
+			System.arraycopy(savedFlow, 0, graph.flow, 0, graph.edgeCount);
+			throw x;
+		}
+	}
+
+	// u has amount more incoming than outgoing flow and v amount less
+	private boolean rebalance(FlowGraph graph, int u, int v, long amount, int[] sources, int[] sinks) {
+		int[] terminals = new int[sources.length + sinks.length];
+		System.arraycopy(sources, 0, terminals, 0, sources.length);
+		System.arraycopy(sinks, 0, terminals, sources.length, sinks.length);
+		long rerouted = push(graph, new int[] { u }, new int[] { v }, amount);
+		long surplus = amount - rerouted;
+		long deficit = amount - rerouted;
+		if (!contains(terminals, u)) {
+			surplus -= push(graph, new int[] { u }, sources, surplus);
+			surplus -= push(graph, new int[] { u }, sinks, surplus);
+		} else {
+			surplus = 0;
+		}
+		if (!contains(terminals, v)) {
+			deficit -= push(graph, sinks, new int[] { v }, deficit);
+			deficit -= push(graph, sources, new int[] { v }, deficit);
+		} else {
+			deficit = 0;
+		}
+		return surplus == 0 && deficit == 0;
+	}
+
+	private static boolean contains(int[] vertices, int v) {
+		for (int w : vertices) {
+			if (w == v) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// sends up to amount units from some of the from vertices to some of the to vertices along
+	// shortest residual paths and returns how much was sent
+	private long push(FlowGraph graph, int[] from, int[] to, long amount) {
+		if (from.length == 1 && to.length == 1 && from[0] == to[0]) {
+			return amount;
+		}
+		long sent = 0;
+		int reached;
+		while (sent < amount && (reached = findPath(graph, from, to)) >= 0) {
+			long bottleNeck = amount - sent;
+			for (int w = reached; parentArc[w] != 0; w = graph.arcTail(parentArc[w])) {
+				bottleNeck = Math.min(bottleNeck, graph.arcResidual(parentArc[w]));
+			}
+			for (int w = reached; parentArc[w] != 0; w = graph.arcTail(parentArc[w])) {
+				graph.push(parentArc[w], bottleNeck);
+			}
+			sent += bottleNeck;
+		}
+		return sent;
+	}
+
+	// the to vertex a shortest residual path from the from vertices reaches, -1 if there is none
+	private int findPath(FlowGraph graph, int[] from, int[] to) {
+		int n = graph.vertexCount;
+		if (queue.length < n) {
+			queue = new int[n];
+			parentArc = new int[n];
+			visited = new boolean[n];
+			isTarget = new boolean[n];
+		} else {
+			Arrays.fill(visited, 0, n, false);
+		}
+		for (int t : to) {
+			isTarget[t] = true;
+		}
+		int first = 0, last = 0;
+		for (int s : from) {
+			queue[last++] = s;
+			visited[s] = true;
+			parentArc[s] = 0;
+		}
+		int reached = -1;
+		search: while (first < last) {
+			int visiting = queue[first++];
+			for (int k = 0, arcs = graph.arcCount(visiting); k < arcs; k++) {
+				int link = graph.arc(visiting, k);
+				int w = graph.arcHead(link);
+				if (!visited[w] && graph.arcResidual(link) > 0) {
+					visited[w] = true;
+					parentArc[w] = link;
+					if (isTarget[w]) {
+						reached = w;
+						break search;
+					}
+					queue[last++] = w;
+				}
+			}
+		}
+		for (int t : to) {
+			isTarget[t] = false;
+		}
+		return reached;
+	}
+}
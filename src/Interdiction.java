@@ -0,0 +1,529 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the rails whose loss hurts the most : the reverse of the game, which asks for the cheapest cut.
+//
+// The vitality of a rail is how much the max flow drops when that rail alone is lost. One maximum flow
+// and the components of its residual graph (see ResidualComponents) settle most rails without another
+// flow : a rail that carries nothing has vitality 0, and a saturated rail in some minimum cut has its
+// capacity as vitality (the rest of that cut is still a cut, and a rail cannot take away more than it
+// carries). For each of the others, its flow is first rerouted around it along residual paths, which
+// usually stay close to the rail : if all of it goes through, the rail has vitality 0. Otherwise the
+// rail is removed from a copy of the solved graph and the flow is repaired from the current one (see
+// IncrementalMaxFlow), then put back the same way.
+//
+// attack(k) finds k rails whose loss leaves the smallest max flow. Losing the rails S leaves the
+// smallest capacity of a cut without S, so the best attack takes the k largest rails of some cut C and
+// leaves cap(C) - top_k(C). Writing top_k(C) as the smallest k t + sum max(0, c - t) over the thresholds
+// t gives, for every t, cap(C) - top_k(C) >= sum min(c, t) - k t >= F(t) - k t, where F(t) is the max flow
+// once every capacity is lowered to t. A few thresholds (the function is concave in t, so a ternary
+// search over the capacities) give a lower bound for the whole search, and the minimum cut of each of
+// these flows, without its k largest rails, is an attack that is tried as well. Often one of them meets
+// the bound and the search is over.
+// Otherwise a branch and bound goes over the sets of rails. Only rails carrying flow are worth removing :
+// if none of the rails still to remove carries flow, the current flow survives them. Losing r more rails
+// takes away at most the r largest flows, which bounds a branch from below, and a branch that cannot beat
+// the best attack found so far is dropped. The branches under the first rail removed are shared between
+// the threads, each with its own copy of the graph, and a thread goes down and back up its branch by
+// repairing its flow at each step instead of solving again. A set reached in another order is only
+// searched once. The search is exact, so in the worst case it tries every set of k rails.
+// Like GomoryHuTree this is a snapshot : later changes to the network are not seen.
+
+public class Interdiction<Vertex, Edge> {
+
+	private final ArrayList<Edge> edges;
+	private final Map<Edge, Integer> edgeIds = new HashMap<Edge, Integer>();
+	private final FlowGraph topology = new FlowGraph(); // only its flow is written, by the constructor
+	private final int[] sources;
+	private final int[] sinks;
+	private final long maxFlow;
+	private final long[] vitality;
+	private final String solverName;
+	private final int threads;
+
+	public Interdiction(Network<Vertex, Edge> network) {
+		this(network, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	// each worker needs its own solver, so they are created from the name (null for dinic)
+	public Interdiction(Network<Vertex, Edge> network, String solverName, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("an interdiction needs at least one thread");
+		}
+		this.solverName = solverName == null ? "dinic" : solverName;
+		this.threads = threads;
+		Map<Vertex, Integer> ids = new HashMap<Vertex, Integer>();
+		for (Vertex v : network.getVertices()) {
+			ids.put(v, topology.addVertex());
+		}
+		edges = new ArrayList<Edge>(network.getEdges());
+		for (int i = 0; i < edges.size(); i++) {
+			Edge e = edges.get(i);
+			edgeIds.put(e, i);
+			topology.addEdge(ids.get(network.getSource(e)), ids.get(network.getDest(e)));
+			topology.capacity[i] = network.getCapacity(e);
+		}
+		topology.index();
+		sources = ids(ids, network.getSources());
+		sinks = ids(ids, network.getSinks());
+		maxFlow = MaxFlowSolver.named(this.solverName).solve(topology, sources, sinks);
+		vitality = new long[edges.size()];
+		computeVitality();
+	}
+
+	private static <Vertex> int[] ids(Map<Vertex, Integer> ids, Iterable<Vertex> vertices) {
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		for (Vertex v : vertices) {
+			found.add(ids.get(v));
+		}
+		int[] array = new int[found.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = found.get(i);
+		}
+		return array;
+	}
+
+	private void computeVitality() {
+		ResidualComponents components = new ResidualComponents(topology);
+		boolean[] sourceSide = components.sourceSide(topology, sources);
+		boolean[] sinkSide = components.sinkSide(topology, sinks);
+		ArrayList<Integer> left = new ArrayList<Integer>();
+		for (int e = 0; e < edges.size(); e++) {
+			int from = components.component[topology.tail[e]];
+			int to = components.component[topology.head[e]];
+			if (topology.flow[e] == 0) {
+				vitality[e] = 0;
+			} else if (topology.flow[e] == topology.capacity[e] && from != to && !sinkSide[from] && !sourceSide[to]) {
+				vitality[e] = topology.capacity[e];
+			} else {
+				left.add(e);
+			}
+		}
+		List<Worker> workers = workers(left.size());
+		AtomicInteger next = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (Worker worker : workers) {
+			tasks.add(() -> {
+				for (int i = next.getAndIncrement(); i < left.size(); i = next.getAndIncrement()) {
+					int e = left.get(i);
+					if (!worker.bypass(e)) {
+						vitality[e] = maxFlow - worker.remove(e);
+						worker.restore(e);
+					}
+				}
+				return null;
+			});
+		}
+		run(tasks);
+	}
+
+	private List<Worker> workers(int tasks) {
+		ArrayList<Worker> workers = new ArrayList<Worker>();
+		for (int w = 0; w < Math.max(1, Math.min(threads, tasks)); w++) {
+			workers.add(new Worker());
+		}
+		return workers;
+	}
+
+	private void run(List<Callable<Void>> tasks) {
+		ExecutorService pool = tasks.size() > 1 ? Executors.newFixedThreadPool(tasks.size()) : null;
+		try {
+			if (pool == null) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+				return;
+			}
+			for (Future<Void> result : pool.invokeAll(tasks)) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interdiction interrupted", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+					: new IllegalStateException(e.getCause());
+		} catch (Exception e) {
+			throw e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	public long getMaxFlow() {
+		return maxFlow;
+	}
+
+	// how much the max flow drops when this rail alone is lost
+	public long getVitality(Edge e) {
+		Integer i = edgeIds.get(e);
+		if (i == null) {
+			throw new IllegalArgumentException("edge " + e + " is not in the network");
+		}
+		return vitality[i];
+	}
+
+	// the rails of positive vitality, the most vital first (in the order of the network's edges on a tie)
+	public List<Edge> getVitalRails() {
+		ArrayList<Integer> vital = new ArrayList<Integer>();
+		for (int e = 0; e < edges.size(); e++) {
+			if (vitality[e] > 0) {
+				vital.add(e);
+			}
+		}
+		vital.sort((a, b) -> vitality[a] != vitality[b] ? Long.compare(vitality[b], vitality[a]) : a - b);
+		ArrayList<Edge> rails = new ArrayList<Edge>();
+		for (int e : vital) {
+			rails.add(edges.get(e));
+		}
+		return rails;
+	}
+
+	// the k rails (or fewer, when losing more would not lower the flow any further) whose loss leaves the
+	// smallest max flow
+	public Attack<Edge> attack(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("an attack needs at least one rail");
+		}
+		Search search = new Search(k);
+		search.find();
+		ArrayList<Edge> rails = new ArrayList<Edge>();
+		for (int e : search.bestSet) {
+			rails.add(edges.get(e));
+		}
+		return new Attack<Edge>(rails, search.bestValue, maxFlow);
+	}
+
+	public static final class Attack<Edge> {
+
+		private final List<Edge> rails;
+		private final long maxFlow;
+		private final long reduction;
+
+		Attack(List<Edge> rails, long maxFlow, long before) {
+			this.rails = Collections.unmodifiableList(rails);
+			this.maxFlow = maxFlow;
+			this.reduction = before - maxFlow;
+		}
+
+		public List<Edge> getRails() {
+			return rails;
+		}
+
+		// the max flow once the rails are lost
+		public long getMaxFlow() {
+			return maxFlow;
+		}
+
+		public long getReduction() {
+			return reduction;
+		}
+	}
+
+	private class Search {
+
+		private final int k;
+		private final Set<List<Integer>> seen = ConcurrentHashMap.newKeySet();
+		private volatile long bestValue;
+		private int[] bestSet = new int[0];
+		private long lowest = 0; // no attack leaves less, see lowerBound
+
+		Search(int k) {
+			this.k = k;
+			bestValue = maxFlow;
+		}
+
+		void find() {
+			if (k == 1) { // the most vital rail, already known
+				for (int e = 0; e < edges.size(); e++) {
+					offer(new int[] { e }, 1, maxFlow - vitality[e]);
+				}
+				return;
+			}
+			if (maxFlow == 0) {
+				return;
+			}
+			lowest = lowerBound();
+			if (bestValue <= lowest) {
+				return;
+			}
+
+			int[] candidates = candidates(topology.flow);
+			long[] flows = flows(topology.flow, candidates);
+			List<Worker> workers = workers(candidates.length);
+			AtomicInteger next = new AtomicInteger();
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (Worker worker : workers) {
+				tasks.add(() -> {
+					int[] chosen = new int[k];
+					for (int i = next.getAndIncrement(); i < candidates.length; i = next.getAndIncrement()) {
+						if (Math.max(lowest, bound(maxFlow, flows, k)) >= bestValue) {
+							break;
+						}
+						chosen[0] = candidates[i];
+						seen.add(key(chosen, 1));
+						search(worker, chosen, 1, worker.remove(chosen[0]));
+						worker.restore(chosen[0]);
+					}
+					return null;
+				});
+			}
+			run(tasks);
+		}
+
+		// the largest F(t) - k t over a few thresholds t, trying the attack each of their minimum cuts gives.
+		// Without a bound when some rail has an infinite capacity.
+		private long lowerBound() {
+			long[] capacities = Arrays.copyOf(topology.capacity, topology.edgeCount);
+			Arrays.sort(capacities);
+			int count = 0;
+			for (long c : capacities) {
+				if (c > 0 && (count == 0 || capacities[count - 1] != c)) {
+					capacities[count++] = c;
+				}
+			}
+			long[] thresholds = Arrays.copyOf(capacities, count); // the distinct positive capacities
+			if (thresholds.length == 0 || thresholds[thresholds.length - 1] == FlowGraph.INFINITE) {
+				attackCut(FlowGraph.INFINITE);
+				return 0;
+			}
+			long found = attackCut(thresholds[thresholds.length - 1]);
+			int from = 0;
+			int to = thresholds.length - 1;
+			while (to - from > 2) {
+				int a = from + (to - from) / 3;
+				int b = to - (to - from) / 3;
+				long atA = attackCut(thresholds[a]);
+				long atB = attackCut(thresholds[b]);
+				found = Math.max(found, Math.max(atA, atB));
+				if (atA < atB) {
+					from = a + 1;
+				} else {
+					to = b - 1;
+				}
+			}
+			for (int i = from; i <= to; i++) {
+				found = Math.max(found, attackCut(thresholds[i]));
+			}
+			return found;
+		}
+
+		// the max flow with every capacity lowered to t, then the attack on the k largest rails of its
+		// minimum cut. Returns F(t) - k t.
+		private long attackCut(long t) {
+			Worker worker = new Worker();
+			FlowGraph graph = worker.graph;
+			for (int e = 0; e < graph.edgeCount; e++) {
+				graph.capacity[e] = Math.min(topology.capacity[e], t);
+			}
+			graph.clearFlow();
+			long value = worker.solver.solve(graph, sources, sinks);
+			int[] distance = new int[graph.vertexCount];
+			int[] order = new int[graph.vertexCount];
+			int reached = new ParallelBfs().search(graph, sources, false, ParallelBfs.NO_VERTICES, distance, -1, order);
+			boolean[] sourceSide = new boolean[graph.vertexCount];
+			for (int i = 0; i < reached; i++) {
+				sourceSide[order[i]] = true;
+			}
+			ArrayList<Integer> cut = new ArrayList<Integer>();
+			for (int e = 0; e < edges.size(); e++) {
+				if (sourceSide[topology.tail[e]] && !sourceSide[topology.head[e]]) {
+					cut.add(e);
+				}
+			}
+			cut.sort((a, b) -> Long.compare(topology.capacity[b], topology.capacity[a]));
+
+			// back to the real capacities and the maximum flow to try the attack
+			System.arraycopy(topology.capacity, 0, graph.capacity, 0, topology.edgeCount);
+			System.arraycopy(topology.flow, 0, graph.flow, 0, topology.edgeCount);
+			int[] set = new int[Math.min(k, cut.size())];
+			long left = maxFlow;
+			for (int i = 0; i < set.length; i++) {
+				set[i] = cut.get(i);
+				left = worker.remove(set[i]);
+			}
+			offer(set, set.length, left);
+			return t == FlowGraph.INFINITE || t > value / k ? 0 : value - k * t;
+		}
+
+		// the first depth rails of chosen are lost and the flow is now value
+		private void search(Worker worker, int[] chosen, int depth, long value) {
+			offer(chosen, depth, value);
+			int left = k - depth;
+			if (left == 0 || value == 0) {
+				return;
+			}
+			int[] candidates = candidates(worker.graph.flow);
+			long[] flows = flows(worker.graph.flow, candidates);
+			for (int e : candidates) {
+				if (Math.max(lowest, bound(value, flows, left)) >= bestValue) {
+					return;
+				}
+				chosen[depth] = e;
+				if (seen.add(key(chosen, depth + 1))) {
+					search(worker, chosen, depth + 1, worker.remove(e));
+					worker.restore(e);
+				}
+			}
+		}
+
+		private synchronized void offer(int[] chosen, int depth, long value) {
+			if (value < bestValue) {
+				bestValue = value;
+				bestSet = Arrays.copyOf(chosen, depth);
+			}
+		}
+
+		// the rails carrying flow, the largest flow first
+		private int[] candidates(long[] flow) {
+			ArrayList<Integer> found = new ArrayList<Integer>();
+			for (int e = 0; e < edges.size(); e++) {
+				if (flow[e] > 0) {
+					found.add(e);
+				}
+			}
+			found.sort((a, b) -> Long.compare(flow[b], flow[a]));
+			int[] candidates = new int[found.size()];
+			for (int i = 0; i < candidates.length; i++) {
+				candidates[i] = found.get(i);
+			}
+			return candidates;
+		}
+
+		// their flows now, the repairs below them change the flow array
+		private long[] flows(long[] flow, int[] candidates) {
+			long[] flows = new long[candidates.length];
+			for (int i = 0; i < candidates.length; i++) {
+				flows[i] = flow[candidates[i]];
+			}
+			return flows;
+		}
+
+		// the smallest flow that can be left after losing left more rails : each takes away at most its flow
+		private long bound(long value, long[] flows, int left) {
+			for (int i = 0; i < left && i < flows.length; i++) {
+				if (flows[i] >= value) {
+					return 0;
+				}
+				value -= flows[i];
+			}
+			return value;
+		}
+
+		// the same set of rails in any order gives the same key
+		private List<Integer> key(int[] chosen, int depth) {
+			Integer[] set = new Integer[depth];
+			for (int i = 0; i < depth; i++) {
+				set[i] = chosen[i];
+			}
+			Arrays.sort(set);
+			return Arrays.asList(set);
+		}
+	}
+
+	// a copy of the solved graph for one thread : its own capacities and flows, the topology is shared
+	private class Worker {
+
+		private final FlowGraph graph;
+		private final MaxFlowSolver solver = MaxFlowSolver.named(solverName);
+		private final IncrementalMaxFlow incremental = new IncrementalMaxFlow();
+		// for bypass : the search marks the vertices it reached with stamp, and logs its pushes to undo them
+		private final int[] mark;
+		private int stamp = 0;
+		private final int[] queue;
+		private final int[] parentArc;
+		private int[] pushedLinks = new int[16];
+		private long[] pushedAmounts = new long[16];
+
+		Worker() {
+			mark = new int[topology.vertexCount];
+			queue = new int[topology.vertexCount];
+			parentArc = new int[topology.vertexCount];
+			graph = topology.share();
+			graph.capacity = topology.capacity.clone();
+			System.arraycopy(topology.flow, 0, graph.flow, 0, topology.edgeCount);
+		}
+
+		// the max flow once e is lost as well
+		long remove(int e) {
+			incremental.setCapacity(graph, e, 0, sources, sinks, solver);
+			return graph.netOutflow(sources);
+		}
+
+		void restore(int e) {
+			incremental.setCapacity(graph, e, topology.capacity[e], sources, sinks, solver);
+		}
+
+		// whether the whole flow of e can go from its tail to its head along residual paths that avoid it.
+		// The graph is left as it was.
+		boolean bypass(int e) {
+			int u = graph.tail[e];
+			int v = graph.head[e];
+			long left = graph.flow[e];
+			int pushes = 0;
+			while (left > 0) {
+				if (++stamp == 0) {
+					Arrays.fill(mark, 0);
+					stamp = 1;
+				}
+				mark[u] = stamp;
+				queue[0] = u;
+				int last = 1;
+				boolean found = false;
+				for (int first = 0; first < last && !found; first++) {
+					int x = queue[first];
+					for (int i = 0; i < graph.arcCount(x); i++) {
+						int link = graph.arc(x, i);
+						int y = graph.arcHead(link);
+						if (mark[y] == stamp || FlowGraph.edgeOf(link) == e || graph.arcResidual(link) <= 0) {
+							continue;
+						}
+						mark[y] = stamp;
+						parentArc[y] = link;
+						if (y == v) {
+							found = true;
+							break;
+						}
+						queue[last++] = y;
+					}
+				}
+				if (!found) {
+					break;
+				}
+				long delta = left;
+				for (int y = v; y != u; y = graph.arcTail(parentArc[y])) {
+					delta = Math.min(delta, graph.arcResidual(parentArc[y]));
+				}
+				for (int y = v; y != u; y = graph.arcTail(parentArc[y])) {
+					if (pushes == pushedLinks.length) {
+						pushedLinks = Arrays.copyOf(pushedLinks, pushes * 2);
+						pushedAmounts = Arrays.copyOf(pushedAmounts, pushes * 2);
+					}
+					graph.push(parentArc[y], delta);
+					pushedLinks[pushes] = parentArc[y];
+					pushedAmounts[pushes++] = delta;
+				}
+				left -= delta;
+			}
+			while (pushes > 0) {
+				pushes--;
+				graph.push(pushedLinks[pushes], -pushedAmounts[pushes]);
+			}
+			return left == 0;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+import java.io.IOException;
+
+// thrown by NetworkLoader when a line of a vertex or edge file cannot be read, with the line number
+// (starting at 1) so the faulty line can be found in multi-million line exports.
+
+public class MalformedNetworkException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String file;
+	private final long line;
+
+	public MalformedNetworkException(String file, long line, String message) {
+		super(file + " line " + line + " : " + message);
+		this.file = file;
+		this.line = line;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public long getLine() {
+		return line;
+	}
+}
@@ -0,0 +1,65 @@
+// a maximum flow algorithm working on the primitive FlowGraph. A Network delegates computeMaxFlow to
+// the solver it was given with setMaxFlowSolver.
+// Several sources and sinks are handled as if a super source fed every source and every sink fed a
+// super sink through edges of infinite capacity, without adding these edges : the searches simply
+// start from all the sources at once and stop at the first sink they meet.
+
+public interface MaxFlowSolver {
+
+	// raises the flow stored in the graph (which must be a valid flow, usually all zero) to a maximum
+	// flow from the sources to the sinks and returns its value. The two sets must be disjoint.
+	// Throws an IllegalStateException when the maximum flow is infinite.
+	public long solve(FlowGraph graph, int[] sources, int[] sinks);
+
+	// the same for one source and one sink, seen through an int (see FlowGraph.narrow, a flow that does not
+	// fit throws an ArithmeticException)
+	public default int solve(FlowGraph graph, int source, int sink) {
+		return FlowGraph.narrow(solve(graph, new int[] { source }, new int[] { sink }));
+	}
+
+	public static final String UNBOUNDED = "the max flow is infinite : a path of rails with infinite capacity joins a"
+			+ " source to a sink";
+
+	// the maximum flow is infinite when some path of INFINITE edges goes from a source to a sink
+	public static void checkBounded(FlowGraph graph, int[] sources, int[] sinks) {
+		graph.index();
+		boolean[] reached = new boolean[graph.vertexCount];
+		int[] queue = new int[graph.vertexCount];
+		int last = 0;
+		for (int s : sources) {
+			if (!reached[s]) {
+				reached[s] = true;
+				queue[last++] = s;
+			}
+		}
+		for (int first = 0; first < last; first++) {
+			int u = queue[first];
+			for (int i = graph.outStart[u]; i < graph.outStart[u + 1]; i++) {
+				int e = graph.outEdges[i];
+				if (graph.capacity[e] == FlowGraph.INFINITE && !reached[graph.head[e]]) {
+					reached[graph.head[e]] = true;
+					queue[last++] = graph.head[e];
+				}
+			}
+		}
+		for (int t : sinks) {
+			if (reached[t]) {
+				throw new IllegalStateException(UNBOUNDED);
+			}
+		}
+	}
+
+	public static MaxFlowSolver named(String name) {
+		switch (name) {
+		case "edmonds-karp":
+			return new EdmondsKarpSolver();
+		case "dinic":
+			return new DinicSolver();
+		case "push-relabel":
+			return new PushRelabelSolver();
+		default:
+			throw new IllegalArgumentException(
+					"unknown solver " + name + " (expected edmonds-karp, dinic or push-relabel)");
+		}
+	}
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+// the cheapest maximum flow : among all the maximum flows from the sources to the sinks, one whose total
+// cost (the sum over the edges of flow * cost) is the smallest. Successive shortest paths : the flow is
+// always augmented along a cheapest residual path from a source to a sink, found by Dijkstra's algorithm
+// with a binary heap. A backward arc gives its cost back, so it costs -cost ; Dijkstra still works
+// because every vertex carries a potential and the search runs on the reduced costs
+// cost + potential[u] - potential[v], which stay non negative from one search to the next once the
+// distances found are added to the potentials. Costs must be non negative and the flow stored in the
+// graph must be zero when the solver starts.
+// Everything runs on the primitive arrays of the FlowGraph and on scratch arrays kept between calls, the
+// heap is an array of vertices with the position of each vertex in it for the decrease key.
+
+public class MinCostFlowSolver {
+
+	private long[] potential = new long[0];
+	private long[] distance = new long[0];
+	private int[] parentArc = new int[0]; // signed link of the arc the path arrives by, 0 at a source
+	private int[] heap = new int[0];
+	private int[] position = new int[0]; // index of the vertex in heap, -1 when it is not in it
+	private boolean[] isSink = new boolean[0];
+	private int heapSize;
+
+	// raises the flow to a cheapest maximum flow and returns its value
+	public long solve(FlowGraph graph, int[] sources, int[] sinks) {
+		MaxFlowSolver.checkBounded(graph, sources, sinks);
+		graph.index();
+		int n = graph.vertexCount;
+		if (potential.length < n) {
+			potential = new long[n];
+			distance = new long[n];
+			parentArc = new int[n];
+			heap = new int[n];
+			position = new int[n];
+			isSink = new boolean[n];
+			Arrays.fill(position, -1);
+		}
+		Arrays.fill(potential, 0, n, 0);
+		for (int t : sinks) {
+			isSink[t] = true;
+		}
+		int sink;
+		while ((sink = cheapestPath(graph, sources)) >= 0) {
+			long bottleNeck = Long.MAX_VALUE;
+			for (int v = sink; parentArc[v] != 0; v = graph.arcTail(parentArc[v])) {
+				bottleNeck = Math.min(bottleNeck, graph.arcResidual(parentArc[v]));
+			}
+			for (int v = sink; parentArc[v] != 0; v = graph.arcTail(parentArc[v])) {
+				graph.push(parentArc[v], bottleNeck);
+			}
+			SolverMetrics.augmentation(bottleNeck);
+		}
+		for (int t : sinks) {
+			isSink[t] = false;
+		}
+		return graph.netOutflow(sources);
+	}
+
+	// Dijkstra from all the sources at once on the reduced costs, up to the first sink settled. Returns
+	// that sink, or -1 when no sink can be reached any more. The potentials then move by the distances
+	// found, capped at the distance of the sink for the vertices not settled.
+	private int cheapestPath(FlowGraph graph, int[] sources) {
+		int n = graph.vertexCount;
+		Arrays.fill(distance, 0, n, Long.MAX_VALUE);
+		heapSize = 0;
+		for (int s : sources) {
+			if (distance[s] != 0) {
+				distance[s] = 0;
+				parentArc[s] = 0;
+				insert(s);
+			}
+		}
+		int sink = -1;
+		int settled = 0;
+		long scanned = 0;
+		while (heapSize > 0) {
+			int u = pop();
+			settled++;
+			if (isSink[u]) {
+				sink = u;
+				break;
+			}
+			int arcs = graph.arcCount(u);
+			scanned += arcs;
+			for (int k = 0; k < arcs; k++) {
+				int link = graph.arc(u, k);
+				if (graph.arcResidual(link) > 0) {
+					int v = graph.arcHead(link);
+					int e = FlowGraph.edgeOf(link);
+					long reduced = (link > 0 ? graph.cost[e] : -graph.cost[e]) + potential[u] - potential[v];
+					long d = distance[u] + reduced;
+					if (d < distance[v]) {
+						distance[v] = d;
+						parentArc[v] = link;
+						if (position[v] < 0) {
+							insert(v);
+						} else {
+							siftUp(position[v]);
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < heapSize; i++) {
+			position[heap[i]] = -1;
+		}
+		SolverMetrics.search(settled, scanned);
+		if (sink >= 0) {
+			long cap = distance[sink];
+			for (int v = 0; v < n; v++) {
+				potential[v] += Math.min(distance[v], cap);
+			}
+		}
+		return sink;
+	}
+
+	private void insert(int v) {
+		heap[heapSize] = v;
+		position[v] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private int pop() {
+		int top = heap[0];
+		position[top] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	private void siftUp(int i) {
+		int v = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (distance[heap[parent]] <= distance[v]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		position[v] = i;
+	}
+
+	private void siftDown(int i) {
+		int v = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && distance[heap[child + 1]] < distance[heap[child]]) {
+				child++;
+			}
+			if (distance[heap[child]] >= distance[v]) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		position[v] = i;
+	}
+}
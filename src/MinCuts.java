@@ -0,0 +1,307 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// every minimum cut of a solved network, not only the one closest to the sources that getResult gives.
+// The minimum cuts are read from the residual graph of the maximum flow (Picard and Queyranne) : the side
+// of the sources of a minimum cut is a set of vertices that no residual arc leaves, with the sources in it
+// and the sinks out of it, and its rails are the ones leaving it (they are all saturated). Such a set is
+// made of whole strongly connected components of the residual graph (see ResidualComponents), so the
+// cuts are the closed sets of the condensation : it always holds what the sources reach (the cut of
+// getResult), never what reaches a sink, and any of the components left as long as it holds their
+// successors too. Two such sets can leave by the same rails (a component whose rails all go into the side
+// of the sources can be on either side), so the iterator only builds the smallest set of each cut : a
+// component goes to the side of the sources either because a component that has an arc to it did, or
+// because one of its saturated rails leaves it and is then cut. There can be exponentially many cuts,
+// the iterator builds them one at a time, each in O(components + arcs and rails between components).
+// Each rail is classified once :
+// - EVERY when it leaves what the sources reach and enters what reaches a sink
+// - SOME when it is saturated, joins two different components and neither end is forced to the wrong side
+// - NEVER otherwise
+// Rails of capacity 0 are left out of the cuts, removing them changes nothing.
+// The network must be solved, and not change afterwards : this is a snapshot of its flow.
+
+public class MinCuts<Vertex, Edge> implements Iterable<List<Edge>> {
+
+	public enum Criticality {
+		EVERY, SOME, NEVER
+	}
+
+	private final ArrayList<Edge> edges;
+	private final Map<Edge, Integer> edgeIds = new HashMap<Edge, Integer>();
+	private final FlowGraph graph = new FlowGraph();
+	private final long value;
+	private final Criticality[] criticality;
+
+	private final int[] component; // by vertex
+	private final boolean[] sourceSide; // by component, in every cut
+	private final boolean[] sinkSide; // by component, in no cut
+	// the condensation : the components a component has residual arcs to are
+	// successors[successorStart[c]] ... successors[successorStart[c + 1] - 1]
+	private final int[] successorStart;
+	private final int[] successors;
+	// the same with the components that have arcs to a component
+	private final int[] predecessorStart;
+	private final int[] predecessors;
+	private final int[] free; // the components on neither side, in decreasing number (predecessors first)
+	private final boolean[] leftBySaturated; // by component, a saturated rail goes from it to another one
+	private final int[] between; // the rails of positive capacity joining two different components
+
+	public MinCuts(Network<Vertex, Edge> network) {
+		value = network.getMaxFlowValue();
+		Map<Vertex, Integer> ids = new HashMap<Vertex, Integer>();
+		for (Vertex v : network.getVertices()) {
+			ids.put(v, graph.addVertex());
+		}
+		edges = new ArrayList<Edge>(network.getEdges());
+		for (int i = 0; i < edges.size(); i++) {
+			Edge e = edges.get(i);
+			edgeIds.put(e, i);
+			graph.addEdge(ids.get(network.getSource(e)), ids.get(network.getDest(e)));
+			graph.capacity[i] = network.getCapacity(e);
+			graph.flow[i] = network.getFlowValue(e);
+		}
+		graph.index();
+
+		ResidualComponents components = new ResidualComponents(graph);
+		component = components.component;
+		int count = components.count;
+		int[] arcCount = new int[count + 1];
+		for (int u = 0; u < graph.vertexCount; u++) {
+			for (int k = 0; k < graph.arcCount(u); k++) {
+				int link = graph.arc(u, k);
+				if (graph.arcResidual(link) > 0 && component[graph.arcHead(link)] != component[u]) {
+					arcCount[component[u] + 1]++;
+				}
+			}
+		}
+		successorStart = new int[count + 1];
+		for (int c = 0; c < count; c++) {
+			successorStart[c + 1] = successorStart[c] + arcCount[c + 1];
+		}
+		successors = new int[successorStart[count]];
+		predecessorStart = new int[count + 1];
+		predecessors = new int[successors.length];
+		int[] next = Arrays.copyOf(successorStart, count);
+		for (int u = 0; u < graph.vertexCount; u++) {
+			for (int k = 0; k < graph.arcCount(u); k++) {
+				int link = graph.arc(u, k);
+				if (graph.arcResidual(link) > 0 && component[graph.arcHead(link)] != component[u]) {
+					successors[next[component[u]]++] = component[graph.arcHead(link)];
+					predecessorStart[component[graph.arcHead(link)] + 1]++;
+				}
+			}
+		}
+		for (int c = 0; c < count; c++) {
+			predecessorStart[c + 1] += predecessorStart[c];
+		}
+		next = Arrays.copyOf(predecessorStart, count);
+		for (int c = 0; c < count; c++) {
+			for (int i = successorStart[c]; i < successorStart[c + 1]; i++) {
+				predecessors[next[successors[i]]++] = c;
+			}
+		}
+
+		// what the sources reach, forwards, and what reaches a sink : arcs only go to lower numbers, so a
+		// single pass over the components in order settles both
+		sourceSide = new boolean[count];
+		sinkSide = new boolean[count];
+		for (Vertex v : network.getSources()) {
+			sourceSide[component[ids.get(v)]] = true;
+		}
+		for (Vertex v : network.getSinks()) {
+			sinkSide[component[ids.get(v)]] = true;
+		}
+		for (int c = count - 1; c >= 0; c--) {
+			if (sourceSide[c]) {
+				for (int i = successorStart[c]; i < successorStart[c + 1]; i++) {
+					sourceSide[successors[i]] = true;
+				}
+			}
+		}
+		for (int c = 0; c < count; c++) {
+			for (int i = successorStart[c]; i < successorStart[c + 1] && !sinkSide[c]; i++) {
+				sinkSide[c] = sinkSide[successors[i]];
+			}
+		}
+		int freeCount = 0;
+		for (int c = 0; c < count; c++) {
+			if (!sourceSide[c] && !sinkSide[c]) {
+				freeCount++;
+			}
+		}
+		free = new int[freeCount];
+		freeCount = 0;
+		for (int c = count - 1; c >= 0; c--) {
+			if (!sourceSide[c] && !sinkSide[c]) {
+				free[freeCount++] = c;
+			}
+		}
+
+		criticality = new Criticality[edges.size()];
+		leftBySaturated = new boolean[count];
+		ArrayList<Integer> crossing = new ArrayList<Integer>();
+		for (int e = 0; e < edges.size(); e++) {
+			int from = component[graph.tail[e]];
+			int to = component[graph.head[e]];
+			if (graph.capacity[e] == 0 || from == to || graph.flow[e] != graph.capacity[e] || sinkSide[from]
+					|| sourceSide[to]) {
+				criticality[e] = Criticality.NEVER;
+			} else if (sourceSide[from] && sinkSide[to]) {
+				criticality[e] = Criticality.EVERY;
+			} else {
+				criticality[e] = Criticality.SOME;
+			}
+			if (graph.capacity[e] > 0 && from != to) {
+				crossing.add(e);
+				leftBySaturated[from] |= graph.flow[e] == graph.capacity[e];
+			}
+		}
+		between = new int[crossing.size()];
+		for (int i = 0; i < between.length; i++) {
+			between[i] = crossing.get(i);
+		}
+	}
+
+	// the value of every minimum cut, the max flow
+	public long getValue() {
+		return value;
+	}
+
+	public Criticality getCriticality(Edge e) {
+		return criticality[edgeId(e)];
+	}
+
+	private int edgeId(Edge e) {
+		Integer i = edgeIds.get(e);
+		if (i == null) {
+			throw new IllegalArgumentException("edge " + e + " is not in the network");
+		}
+		return i;
+	}
+
+	// whether these rails are exactly the rails of positive capacity of some minimum cut. The rails are
+	// looked up one by one, then the components they start from are closed under the condensation, which
+	// only walks the components between the cut of getResult and this one.
+	public boolean isMinimumCut(Collection<Edge> cut) {
+		long capacity = 0;
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (Edge e : cut) {
+			Integer i = edgeIds.get(e);
+			if (i == null) {
+				return false;
+			}
+			if (graph.capacity[i] == 0) {
+				continue;
+			}
+			if (criticality[i] == Criticality.NEVER) {
+				return false;
+			}
+			capacity += graph.capacity[i];
+			if (capacity > value) {
+				return false;
+			}
+			ids.add(i);
+		}
+		if (capacity != value) {
+			return false;
+		}
+		// the smallest closed set holding the tails of the rails, beyond what the sources reach
+		HashMap<Integer, Boolean> closure = new HashMap<Integer, Boolean>();
+		ArrayList<Integer> stack = new ArrayList<Integer>();
+		for (int e : ids) {
+			int c = component[graph.tail[e]];
+			if (!sourceSide[c] && closure.put(c, true) == null) {
+				stack.add(c);
+			}
+		}
+		while (!stack.isEmpty()) {
+			int c = stack.remove(stack.size() - 1);
+			if (sinkSide[c]) {
+				return false;
+			}
+			for (int i = successorStart[c]; i < successorStart[c + 1]; i++) {
+				int d = successors[i];
+				if (!sourceSide[d] && closure.put(d, true) == null) {
+					stack.add(d);
+				}
+			}
+		}
+		// every rail must leave it : then they are all of its rails, their capacity being the max flow
+		for (int e : ids) {
+			int c = component[graph.head[e]];
+			if (sourceSide[c] || closure.containsKey(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// the minimum cuts one by one, each once and as its rails in the order of the network's edges, starting
+	// with the cut of getResult
+	public Iterator<List<Edge>> iterator() {
+		return new CutIterator();
+	}
+
+	// the choices made for the free components, in the order of free : a component is on the side of the
+	// sources when one of its predecessors is, these come before it, and otherwise when it was chosen,
+	// which only a component left by a saturated rail can be. Every choice gives a cut, so advancing never
+	// goes back more than once over the components.
+	private class CutIterator implements Iterator<List<Edge>> {
+
+		private final boolean[] inside = Arrays.copyOf(sourceSide, sourceSide.length);
+		private final boolean[] chosen = new boolean[free.length];
+		private boolean hasNext = true; // the first cut chooses no free component
+
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		public List<Edge> next() {
+			if (!hasNext) {
+				throw new NoSuchElementException();
+			}
+			ArrayList<Edge> cut = new ArrayList<Edge>();
+			for (int e : between) {
+				if (inside[component[graph.tail[e]]] && !inside[component[graph.head[e]]]) {
+					cut.add(edges.get(e));
+				}
+			}
+			advance();
+			return cut;
+		}
+
+		// the next choices in the order of a binary counter on the free components : the last component
+		// not chosen that could be is chosen, the ones after it are not, then the sides are settled again
+		// from there
+		private void advance() {
+			for (int j = free.length - 1; j >= 0; j--) {
+				int c = free[j];
+				if (chosen[j]) {
+					chosen[j] = false;
+				} else if (leftBySaturated[c] && !pulled(c)) {
+					chosen[j] = true;
+					for (int i = j; i < free.length; i++) {
+						inside[free[i]] = chosen[i] || pulled(free[i]);
+					}
+					return;
+				}
+			}
+			hasNext = false;
+		}
+
+		private boolean pulled(int c) {
+			for (int i = predecessorStart[c]; i < predecessorStart[c + 1]; i++) {
+				if (inside[predecessors[i]]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -1,5 +1,9 @@
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// a network is not thread safe, a solve writes the flows in place : see FrozenNetwork for a copy that
+// many threads can query and solve at once.
 
 public interface Network<Vertex, Edge> {
 	
@@ -32,25 +36,82 @@ public interface Network<Vertex, Edge> {
 
 	public Vertex getDest(Edge e);
 
+	// the first edge from v0 to v1, null if there is none
 	public Edge getEdgeFromVertices(Vertex v0, Vertex v1);
 
+	// every edge from v0 to v1 (parallel rails), in the order they were added
+	public List<Edge> getEdgesFromVertices(Vertex v0, Vertex v1);
+
 	public Integer getFlow(Edge e);
 
 	public Integer getResidualCapacity(Edge e);
+
+	// the same without the int limit, FlowGraph.INFINITE for a rail without one. The Integer methods
+	// above are views of these : Integer.MAX_VALUE stands for INFINITE and a value that does not fit
+	// throws an ArithmeticException.
+	public void setCapacity(Edge e, long capacity);
+
+	public long getCapacity(Edge e);
+
+	public long getFlowValue(Edge e);
+
+	// what a unit of flow pays to go through the edge, 0 until it is set. Costs cannot be negative.
+	public void setCost(Edge e, Integer cost);
+
+	public Integer getCost(Edge e);
 	
 
 	
-	public boolean areConnected(HashSet<Edge> removedEdges);
+	// the flow leaves from every source and arrives at every sink, the two sets must be disjoint. Until
+	// this is called they are the vertices named "Source" and "Sink".
+	public void setTerminals(Collection<Vertex> sources, Collection<Vertex> sinks);
+
+	public Collection<Vertex> getSources();
+
+	public Collection<Vertex> getSinks();
+
+	// whether some sink can still be reached from some source without the removed edges
+	public boolean areConnected(Set<Edge> removedEdges);
+
+	public void setMaxFlowSolver(MaxFlowSolver solver);
 
 	public void computeMaxFlow();
 
+	// a maximum flow that costs as little as possible (see MinCostFlowSolver), whatever the solver. The
+	// updates below keep the flow maximum but not cheapest, this has to be called again after them.
+	public void computeMinCostFlow();
+
+	// the sum over the edges of flow * cost
+	public long getTotalCost();
+
+	// the following three keep a solved network solved : the maximum flow is repaired from the current
+	// one (see IncrementalMaxFlow) and the optimal cut is computed again from it.
+
+	public void updateWeight(Edge e, Integer weight);
+
+	// the same without the int limit, updateWeight is a view of it like setWeight is of setCapacity
+	public void updateCapacity(Edge e, long capacity);
+
+	public void insertEdge(Edge e, Vertex[] v0v1, Integer weight);
+
+	public void removeEdge(Edge e);
+
 	public boolean findAugmentingPath();
 
+	// the flow value, the source side and the cut of the current flow, built on the first call after a
+	// change to the network and cached until the next one (see FlowResult). Every change above but
+	// setCost drops it.
+	public FlowResult<Edge> getResult();
+
+	// builds the result now instead of on the next query
 	public void computeMinCut();
 
 	public int getMaxFlow();
-	
-	public HashSet<Edge> getOptimalCut();
+
+	public long getMaxFlowValue();
+
+	// the edges of the result's cut, read only
+	public Set<Edge> getOptimalCut();
 
 
 }
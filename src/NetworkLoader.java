@@ -0,0 +1,377 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// fills a network from a vertex file ("name x y" per line) and an edge file ("from to capacity [cost]"
+// per line, the capacity being an integer up to a long or inf for a rail without limit, the cost of a
+// unit of flow a non negative integer, 0 when it is left out) in a single pass over each. The bytes are
+// read in blocks from an NIO channel (the file channel itself for a FileInputStream) and the lines are cut
+// into tokens directly in the block : there is no String per line, no regex split and no String per edge
+// endpoint, which are looked up by their bytes in a hash table of the station names. Numbers are parsed in
+// place as well.
+// Blank lines are skipped, and any line that cannot be read, a token left after the last field included,
+// ends the load with a MalformedNetworkException telling which file and line are wrong.
+
+public class NetworkLoader {
+
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	// powers of ten that are exact in a float, see parseFloat
+	private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+			1e10f };
+
+	private final Network<Node, Integer> network;
+	private float maxX = 0;
+	private float maxY = 0;
+	private int edgeCount = 0;
+	private boolean costs = false;
+
+	// open addressing table from the bytes of a station name to its index in nodes and names
+	private int[] table = new int[64]; // index + 1, 0 is an empty slot
+	private ArrayList<byte[]> names = new ArrayList<byte[]>();
+	private ArrayList<Node> nodes = new ArrayList<Node>();
+
+	// input state : the bytes from position to limit are read but not consumed yet
+	private String file;
+	private ReadableByteChannel channel;
+	private byte[] block = new byte[BLOCK_SIZE];
+	private ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+	private int position;
+	private int limit;
+	private boolean endOfInput;
+	private long lineNumber;
+
+	// current line and token, as offsets in block
+	private int lineEnd;
+	private int cursor;
+	private int tokenStart;
+	private int tokenEnd;
+
+	public NetworkLoader(Network<Node, Integer> network) {
+		this.network = network;
+	}
+
+	public void readVertices(InputStream is) throws IOException {
+		open(is, "vertex file");
+		while (nextLine()) {
+			if (blankLine()) {
+				continue;
+			}
+			requireToken("station name");
+			int nameStart = tokenStart, nameEnd = tokenEnd;
+			float x = parseFloat("x coordinate");
+			float y = parseFloat("y coordinate");
+			requireEnd();
+			Node v = new Node(network.getVertices().size(), x, y);
+			String name = new String(block, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+			network.addVertex(v);
+			network.nameVertex(name, v);
+			putStation(nameStart, nameEnd, v);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+	}
+
+	// edges are numbered 0, 1, 2, ... in file order, carrying on from a previous edge file if any
+	public void readEdges(InputStream is) throws IOException {
+		open(is, "edge file");
+		while (nextLine()) {
+			if (blankLine()) {
+				continue;
+			}
+			Node from = station();
+			Node to = station();
+			long capacity = parseCapacity();
+			network.addEdge(edgeCount, new Node[] { from, to });
+			try {
+				network.setCapacity(edgeCount, capacity);
+			} catch (ArithmeticException | IllegalArgumentException e) {
+				throw error(e.getMessage());
+			}
+			if (nextToken()) {
+				int cost = intToken("cost");
+				if (cost < 0) {
+					throw error("cost '" + token() + "' is negative");
+				}
+				network.setCost(edgeCount, cost);
+				costs |= cost != 0;
+				requireEnd();
+			}
+			edgeCount++;
+		}
+	}
+
+	// whether some edge has a cost, the flow to look for is then the cheapest maximum flow
+	public boolean hasCosts() {
+		return costs;
+	}
+
+	public float getMaxX() {
+		return maxX;
+	}
+
+	public float getMaxY() {
+		return maxY;
+	}
+
+	private void open(InputStream is, String file) {
+		this.file = file;
+		channel = is instanceof FileInputStream ? ((FileInputStream) is).getChannel() : Channels.newChannel(is);
+		position = 0;
+		limit = 0;
+		endOfInput = false;
+		lineNumber = 0;
+	}
+
+	// moves to the next line, false at the end of the input. The whole line is in block afterwards.
+	private boolean nextLine() throws IOException {
+		lineNumber++;
+		int scanned = position;
+		while (true) {
+			for (int i = scanned; i < limit; i++) {
+				if (block[i] == '\n') {
+					startLine(i);
+					position = i + 1;
+					return true;
+				}
+			}
+			if (endOfInput) {
+				if (position == limit) {
+					return false;
+				}
+				startLine(limit);
+				position = limit;
+				return true;
+			}
+			scanned = limit - position;
+			fill();
+		}
+	}
+
+	private void startLine(int end) {
+		cursor = position;
+		lineEnd = end;
+	}
+
+	// keeps the unconsumed bytes at the start of the block (growing it for very long lines) and reads
+	// more behind them
+	private void fill() throws IOException {
+		int remaining = limit - position;
+		if (remaining == block.length) {
+			block = Arrays.copyOf(block, block.length * 2);
+			blockBuffer = ByteBuffer.wrap(block);
+		} else if (position > 0) {
+			System.arraycopy(block, position, block, 0, remaining);
+		}
+		position = 0;
+		limit = remaining;
+		blockBuffer.limit(block.length).position(limit);
+		int read = channel.read(blockBuffer);
+		if (read < 0) {
+			endOfInput = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	private boolean blankLine() {
+		while (cursor < lineEnd && block[cursor] <= ' ') {
+			cursor++;
+		}
+		return cursor == lineEnd;
+	}
+
+	private boolean nextToken() {
+		while (cursor < lineEnd && block[cursor] <= ' ') {
+			cursor++;
+		}
+		if (cursor == lineEnd) {
+			return false;
+		}
+		tokenStart = cursor;
+		while (cursor < lineEnd && block[cursor] > ' ') {
+			cursor++;
+		}
+		tokenEnd = cursor;
+		return true;
+	}
+
+	private void requireToken(String what) throws MalformedNetworkException {
+		if (!nextToken()) {
+			throw error("missing " + what);
+		}
+	}
+
+	private void requireEnd() throws MalformedNetworkException {
+		if (nextToken()) {
+			throw error("unexpected token '" + token() + "'");
+		}
+	}
+
+	private MalformedNetworkException error(String message) {
+		return new MalformedNetworkException(file, lineNumber, message);
+	}
+
+	private String token() {
+		return new String(block, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+	}
+
+	private int intToken(String what) throws MalformedNetworkException {
+		long value = longToken(what);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw error(what + " '" + token() + "' does not fit in an int");
+		}
+		return (int) value;
+	}
+
+	private long longToken(String what) throws MalformedNetworkException {
+		int i = tokenStart;
+		boolean negative = block[i] == '-';
+		if (negative || block[i] == '+') {
+			i++;
+		}
+		if (i == tokenEnd) {
+			throw error(what + " '" + token() + "' is not an integer");
+		}
+		long value = 0;
+		for (; i < tokenEnd; i++) {
+			int digit = block[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw error(what + " '" + token() + "' is not an integer");
+			}
+			// accumulated as a negative number, which reaches one further than a positive one
+			if (value < (Long.MIN_VALUE + digit) / 10) {
+				throw error(what + " '" + token() + "' does not fit in a long");
+			}
+			value = value * 10 - digit;
+		}
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				throw error(what + " '" + token() + "' does not fit in a long");
+			}
+			value = -value;
+		}
+		return value;
+	}
+
+	private long parseCapacity() throws MalformedNetworkException {
+		requireToken("capacity");
+		if (tokenEnd - tokenStart == 3 && block[tokenStart] == 'i' && block[tokenStart + 1] == 'n'
+				&& block[tokenStart + 2] == 'f') {
+			return FlowGraph.INFINITE;
+		}
+		return longToken("capacity");
+	}
+
+	// plain decimals with at most 7 significant digits (what coordinates look like) are computed as
+	// digits * 10^exponent or digits / 10^-exponent in float arithmetic. Both operands are exact
+	// floats, so the result is correctly rounded and identical to Float.parseFloat. Anything else
+	// (more digits, exponent notation, NaN...) goes through Float.parseFloat.
+	private float parseFloat(String what) throws MalformedNetworkException {
+		requireToken(what);
+		int i = tokenStart;
+		boolean negative = block[i] == '-';
+		if (negative || block[i] == '+') {
+			i++;
+		}
+		int digits = 0;
+		int mantissa = 0;
+		int exponent = 0;
+		boolean dot = false;
+		boolean anyDigit = false;
+		boolean fast = true;
+		for (; i < tokenEnd && fast; i++) {
+			byte b = block[i];
+			if (b >= '0' && b <= '9') {
+				anyDigit = true;
+				if (mantissa != 0 || b != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if (dot) {
+					exponent--;
+				}
+				fast = digits <= 7;
+			} else if (b == '.' && !dot) {
+				dot = true;
+			} else {
+				fast = false;
+			}
+		}
+		if (fast && anyDigit && exponent >= -10) {
+			float value = exponent == 0 ? mantissa : mantissa / FLOAT_POWERS_OF_TEN[-exponent];
+			return negative ? -value : value;
+		}
+		try {
+			return Float.parseFloat(token());
+		} catch (NumberFormatException e) {
+			throw error(what + " '" + token() + "' is not a number");
+		}
+	}
+
+	private Node station() throws MalformedNetworkException {
+		requireToken("station name");
+		int index = findStation(tokenStart, tokenEnd);
+		if (index < 0) {
+			throw error("unknown station '" + token() + "'");
+		}
+		return nodes.get(index);
+	}
+
+	private static int hash(byte[] bytes, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + bytes[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	// index of the station whose name is block[start ... end - 1], -1 if there is none
+	private int findStation(int start, int end) {
+		int mask = table.length - 1;
+		for (int slot = hash(block, start, end) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			byte[] name = names.get(table[slot] - 1);
+			if (Arrays.equals(name, 0, name.length, block, start, end)) {
+				return table[slot] - 1;
+			}
+		}
+		return -1;
+	}
+
+	// a name given twice points to the last station, like Network.nameVertex does
+	private void putStation(int start, int end, Node v) {
+		int existing = findStation(start, end);
+		if (existing >= 0) {
+			nodes.set(existing, v);
+			return;
+		}
+		if (2 * (names.size() + 1) > table.length) {
+			int[] old = table;
+			table = new int[old.length * 2];
+			for (int index : old) {
+				if (index != 0) {
+					byte[] name = names.get(index - 1);
+					insert(hash(name, 0, name.length), index);
+				}
+			}
+		}
+		names.add(Arrays.copyOfRange(block, start, end));
+		nodes.add(v);
+		insert(hash(block, start, end), names.size());
+	}
+
+	private void insert(int hash, int index) {
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = index;
+	}
+}
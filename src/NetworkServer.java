@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// long running server keeping solved networks in memory and answering queries over HTTP, so a query
+// pays neither the start of the JVM nor the loading of the files. The JDK's HttpServer accepts and
+// reads the connections on a selector thread and runs the queries on a fixed pool of worker threads.
+// Every answer is one JSON object, {"error":"..."} with status 400 (or 404, 405) when the query is wrong
+// and 500 when it failed.
+//
+// GET /networks the networks served, with their size and max flow
+// GET /max-flow?network=<name>&sources=<name,...>&sinks=<name,...> the max flow between the stations
+// GET /min-cut?... the same with the edges of the minimum cut
+// GET /what-if?network=<name>&remove=<rail;rail;...>&sources=...&sinks=... the max flow and the cut
+// once these rails are removed, the network itself does not change
+// POST /capacity?network=<name>&rail=<rail>&capacity=<n or inf> changes the capacity of a rail, the
+// max flow is repaired from the current one (see Network.updateCapacity)
+// A rail is given by its id (its line in the edge file) or by its two stations, "from,to" (only when a
+// single rail joins them). network can be left out when a single network is served, sources and sinks
+// default to the network's terminals.
+//
+// The queries never take a lock : each served network is published as a FrozenNetwork, which any
+// number of threads can read and solve at once. A capacity change is applied to the network itself, one
+// writer at a time, and then publishes a new FrozenNetwork ; the queries already running finish on the
+// one they started with.
+
+public class NetworkServer {
+
+	private final HttpServer server;
+	private final ExecutorService pool;
+	private final String solverName; // for the frozen networks
+	private final Map<String, Served> networks = new LinkedHashMap<String, Served>();
+
+	private static class Served {
+		final String name;
+		final Network<Node, Integer> network; // only read and written by the writer holding the lock
+		final ReentrantLock writer = new ReentrantLock();
+		volatile FrozenNetwork<Node, Integer> frozen;
+
+		Served(String name, Network<Node, Integer> network, String solverName) {
+			this.name = name;
+			this.network = network;
+			frozen = new FrozenNetwork<Node, Integer>(network, solverName);
+		}
+	}
+
+	// a query that got its network and its parameters, it returns the JSON answer
+	private interface Query {
+		String answer(Served served, Map<String, String> parameters);
+	}
+
+	public NetworkServer(InetSocketAddress address, int threads, String solverName) throws IOException {
+		this.solverName = solverName == null ? "dinic" : solverName;
+		server = HttpServer.create(address, 0);
+		pool = Executors.newFixedThreadPool(threads);
+		server.setExecutor(pool);
+		server.createContext("/networks", exchange -> handle(exchange, "GET", null));
+		server.createContext("/max-flow", exchange -> handle(exchange, "GET", (s, p) -> maxFlow(s, p, false)));
+		server.createContext("/min-cut", exchange -> handle(exchange, "GET", (s, p) -> maxFlow(s, p, true)));
+		server.createContext("/what-if", exchange -> handle(exchange, "GET", this::whatIf));
+		server.createContext("/capacity", exchange -> handle(exchange, "POST", this::setCapacity));
+	}
+
+	// the network must be solved, networks cannot be added once the server is started
+	public void add(String name, Network<Node, Integer> network) {
+		if (networks.containsKey(name)) {
+			throw new IllegalArgumentException("a network is already served as " + name);
+		}
+		networks.put(name, new Served(name, network, solverName));
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(0);
+		pool.shutdownNow();
+	}
+
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	private void handle(HttpExchange exchange, String method, Query query) throws IOException {
+		int status = 200;
+		String answer;
+		try {
+			Map<String, String> parameters = parameters(exchange.getRequestURI());
+			if (!exchange.getRequestMethod().equals(method)) {
+				status = 405;
+				answer = error(exchange.getRequestURI().getPath() + " expects " + method);
+			} else if (query == null) {
+				answer = list();
+			} else {
+				Served served = served(parameters.get("network"));
+				if (served == null) {
+					status = 404;
+					answer = error(parameters.containsKey("network") ? "unknown network " + parameters.get("network")
+							: "several networks are served, network=<name> is needed");
+				} else {
+					answer = query.answer(served, parameters);
+				}
+			}
+		} catch (IllegalArgumentException | IllegalStateException | ArithmeticException e) {
+			status = 400;
+			answer = error(e.getMessage() == null ? e.toString() : e.getMessage());
+		} catch (RuntimeException e) {
+			status = 500;
+			answer = error(e.toString());
+		}
+		byte[] body = answer.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private Served served(String name) {
+		if (name == null) {
+			return networks.size() == 1 ? networks.values().iterator().next() : null;
+		}
+		return networks.get(name);
+	}
+
+	private String list() {
+		StringBuilder json = new StringBuilder("{\"networks\":[");
+		boolean first = true;
+		for (Served served : networks.values()) {
+			FrozenNetwork<Node, Integer> frozen = served.frozen;
+			json.append(first ? "{\"name\":" : ",{\"name\":");
+			BatchSolver.string(json, served.name);
+			json.append(",\"stations\":").append(frozen.getVertices().size());
+			json.append(",\"rails\":").append(frozen.getEdges().size());
+			json.append(",\"maxFlow\":").append(frozen.getResult().getMaxFlow()).append('}');
+			first = false;
+		}
+		return json.append("]}").toString();
+	}
+
+	private String maxFlow(Served served, Map<String, String> parameters, boolean withCut) {
+		FrozenNetwork<Node, Integer> frozen = served.frozen;
+		List<Node> sources = terminals(frozen, parameters.get("sources"), frozen.getSources());
+		List<Node> sinks = terminals(frozen, parameters.get("sinks"), frozen.getSinks());
+		boolean otherTerminals = parameters.containsKey("sources") || parameters.containsKey("sinks");
+		FlowResult<Integer> result = otherTerminals ? frozen.solve(sources, sinks) : frozen.getResult();
+		StringBuilder json = header(served, frozen, sources, sinks, result.getMaxFlow());
+		if (withCut) {
+			cut(json, frozen, result);
+		}
+		return json.append('}').toString();
+	}
+
+	private String whatIf(Served served, Map<String, String> parameters) {
+		FrozenNetwork<Node, Integer> frozen = served.frozen;
+		String remove = parameters.get("remove");
+		if (remove == null || remove.isEmpty()) {
+			throw new IllegalArgumentException("what-if expects the rails to remove, remove=<rail;rail;...>");
+		}
+		ArrayList<Integer> removed = new ArrayList<Integer>();
+		for (String rail : remove.split(";")) {
+			removed.add(rail(frozen, rail));
+		}
+		List<Node> sources = terminals(frozen, parameters.get("sources"), frozen.getSources());
+		List<Node> sinks = terminals(frozen, parameters.get("sinks"), frozen.getSinks());
+		boolean otherTerminals = parameters.containsKey("sources") || parameters.containsKey("sinks");
+		long before = (otherTerminals ? frozen.solve(sources, sinks) : frozen.getResult()).getMaxFlow();
+		FlowResult<Integer> result = frozen.solve(sources, sinks, removed);
+		StringBuilder json = header(served, frozen, sources, sinks, result.getMaxFlow());
+		json.append(",\"before\":").append(before).append(",\"removed\":[");
+		for (int i = 0; i < removed.size(); i++) {
+			rail(json.append(i == 0 ? "" : ","), frozen, removed.get(i));
+		}
+		json.append(']');
+		cut(json, frozen, result);
+		return json.append('}').toString();
+	}
+
+	private String setCapacity(Served served, Map<String, String> parameters) {
+		String rail = parameters.get("rail");
+		String value = parameters.get("capacity");
+		if (rail == null || value == null) {
+			throw new IllegalArgumentException("capacity expects rail=<rail>&capacity=<n or inf>");
+		}
+		int e = rail(served.frozen, rail);
+		long capacity = value.equals("inf") ? FlowGraph.INFINITE : Long.parseLong(value);
+		if (capacity < 0) {
+			throw new IllegalArgumentException("a capacity cannot be negative (" + capacity + ")");
+		}
+		StringBuilder json = new StringBuilder("{\"network\":");
+		BatchSolver.string(json, served.name);
+		served.writer.lock();
+		try {
+			json.append(",\"rail\":");
+			rail(json, served.frozen, e);
+			served.network.updateCapacity(e, capacity); // a failed update leaves the network as it was
+			served.frozen = new FrozenNetwork<Node, Integer>(served.network, solverName);
+		} finally {
+			served.writer.unlock();
+		}
+		json.append(",\"capacity\":").append(capacity(capacity));
+		json.append(",\"maxFlow\":").append(served.frozen.getResult().getMaxFlow());
+		return json.append('}').toString();
+	}
+
+	private static List<Node> terminals(FrozenNetwork<Node, Integer> frozen, String names, List<Node> defaults) {
+		if (names == null) {
+			return defaults;
+		}
+		ArrayList<Node> stations = new ArrayList<Node>();
+		for (String name : names.split(",")) {
+			Node v = frozen.getVertexByName(name);
+			if (v == null) {
+				throw new IllegalArgumentException("unknown station " + name);
+			}
+			stations.add(v);
+		}
+		return stations;
+	}
+
+	private static int rail(FrozenNetwork<Node, Integer> frozen, String rail) {
+		String[] ends = rail.split(",");
+		if (ends.length == 2) {
+			Node from = frozen.getVertexByName(ends[0]);
+			Node to = frozen.getVertexByName(ends[1]);
+			List<Integer> rails = from == null || to == null ? Collections.<Integer>emptyList()
+					: frozen.getEdgesFromVertices(from, to);
+			if (rails.isEmpty()) {
+				throw new IllegalArgumentException("no rail from " + ends[0] + " to " + ends[1]);
+			}
+			if (rails.size() > 1) {
+				throw new IllegalArgumentException(rails.size() + " rails go from " + ends[0] + " to " + ends[1]
+						+ ", give the id of one of " + rails);
+			}
+			return rails.get(0);
+		}
+		int e = Integer.parseInt(rail);
+		frozen.getSource(e); // throws when there is no such rail
+		return e;
+	}
+
+	private static void cut(StringBuilder json, FrozenNetwork<Node, Integer> frozen, FlowResult<Integer> result) {
+		json.append(",\"cut\":[");
+		boolean first = true;
+		for (int e : result.getCutEdges()) {
+			rail(json.append(first ? "" : ","), frozen, e);
+			first = false;
+		}
+		json.append(']');
+	}
+
+	private static StringBuilder header(Served served, FrozenNetwork<Node, Integer> frozen, List<Node> sources,
+			List<Node> sinks, long maxFlow) {
+		StringBuilder json = new StringBuilder("{\"network\":");
+		BatchSolver.string(json, served.name);
+		stations(json.append(",\"sources\":"), frozen, sources);
+		stations(json.append(",\"sinks\":"), frozen, sinks);
+		return json.append(",\"maxFlow\":").append(maxFlow);
+	}
+
+	private static void stations(StringBuilder json, FrozenNetwork<Node, Integer> frozen, List<Node> stations) {
+		json.append('[');
+		for (int i = 0; i < stations.size(); i++) {
+			BatchSolver.string(json.append(i == 0 ? "" : ","), frozen.getNameOrNullByVertex(stations.get(i)));
+		}
+		json.append(']');
+	}
+
+	private static void rail(StringBuilder json, FrozenNetwork<Node, Integer> frozen, int e) {
+		json.append("{\"rail\":").append(e).append(",\"from\":");
+		BatchSolver.string(json, frozen.getNameOrNullByVertex(frozen.getSource(e)));
+		json.append(",\"to\":");
+		BatchSolver.string(json, frozen.getNameOrNullByVertex(frozen.getDest(e)));
+		json.append(",\"capacity\":").append(capacity(frozen.getCapacity(e))).append('}');
+	}
+
+	// JSON has no infinity, an infinite capacity is the string "inf"
+	private static String capacity(long capacity) {
+		return capacity == FlowGraph.INFINITE ? "\"inf\"" : Long.toString(capacity);
+	}
+
+	private static Map<String, String> parameters(URI uri) {
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		String query = uri.getRawQuery();
+		if (query != null) {
+			for (String pair : query.split("&")) {
+				int equals = pair.indexOf('=');
+				if (equals > 0) {
+					parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+							URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return parameters;
+	}
+
+	private static String error(String message) {
+		StringBuilder json = new StringBuilder("{\"error\":");
+		BatchSolver.string(json, message);
+		return json.append('}').toString();
+	}
+}
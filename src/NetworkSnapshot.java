@@ -0,0 +1,381 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+// binary file holding a solved Game, so it can be reopened without parsing the text files or running
+// max flow again. Everything is big endian :
+//
+// int magic ('RNSP'), int version, int vertexCount n, int edgeCount m, long maxFlow, float maxX, float maxY
+// float x[n], float y[n] station coordinates, by Node id
+// int tail[m], head[m], long capacity[m], flow[m], int cost[m] edges, by edge id
+// int outStart[n + 1], outEdges[outStart[n]], inStart[n + 1], inEdges[inStart[n]] adjacency in compressed
+// sparse row form
+// int removedSize, int removed[removedSize] ids of removed edges, they have a capacity and a flow of 0
+// and do not appear in the adjacency arrays
+// int sourceCount, int sources[sourceCount], int sinkCount, int sinks[sinkCount] Node ids of the terminals
+// n times : int length, length bytes station name in UTF-8 (length -1 for a station without name)
+//
+// The cut is not stored, the network finds it again from the flows when asked.
+//
+// The file is written through a FileChannel with a fixed size buffer and read back by mapping it in
+// memory and copying each array in bulk straight into the FlowGraph of a CompactNetwork. Every count, id
+// and offset read is checked against the size of the file and of the network before it is used, so a
+// truncated or corrupt snapshot is an IOException and not a broken network.
+
+public class NetworkSnapshot {
+
+	private static final int MAGIC = 0x524E5350;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	private NetworkSnapshot(FileChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	public static void write(Game game, Path path) throws IOException {
+		Network<Node, Integer> network = game.getSolutionNetwork();
+		FlowGraph graph = toFlowGraph(network);
+		graph.index();
+		int n = graph.vertexCount;
+		int m = graph.edgeCount;
+		Node[] nodes = new Node[n];
+		for (Node v : network.getVertices()) {
+			nodes[v.id] = v;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			NetworkSnapshot out = new NetworkSnapshot(channel);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(n);
+			out.putInt(m);
+			out.putLong(network.getMaxFlowValue());
+			out.putFloat((float) game.getMaxX());
+			out.putFloat((float) game.getMaxY());
+			for (Node v : nodes) {
+				out.putFloat(v.x);
+			}
+			for (Node v : nodes) {
+				out.putFloat(v.y);
+			}
+			out.putInts(graph.tail, m);
+			out.putInts(graph.head, m);
+			out.putLongs(graph.capacity, m);
+			out.putLongs(graph.flow, m);
+			out.putInts(graph.cost, m);
+			out.putInts(graph.outStart, n + 1);
+			out.putInts(graph.outEdges, graph.outEdges.length);
+			out.putInts(graph.inStart, n + 1);
+			out.putInts(graph.inEdges, graph.inEdges.length);
+			BitSet removed = graph.getRemovedEdges();
+			out.putInt(removed.cardinality());
+			for (int e = removed.nextSetBit(0); e >= 0; e = removed.nextSetBit(e + 1)) {
+				out.putInt(e);
+			}
+			for (Collection<Node> terminals : Arrays.asList(network.getSources(), network.getSinks())) {
+				out.putInt(terminals.size());
+				for (Node v : terminals) {
+					out.putInt(v.id);
+				}
+			}
+			for (Node v : nodes) {
+				String name = network.getNameOrNullByVertex(v);
+				if (name == null) {
+					out.putInt(-1);
+				} else {
+					byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+					out.putInt(bytes.length);
+					out.putBytes(bytes);
+				}
+			}
+			out.flush();
+		}
+	}
+
+	// the Game comes back with a solved CompactNetwork, whatever network it was saved from
+	public static Game read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large to be mapped (" + size + " bytes)");
+			}
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			try {
+				return read(in, path);
+			} catch (BufferUnderflowException e) {
+				throw new IOException(path + " is truncated");
+			}
+		}
+	}
+
+	private static Game read(ByteBuffer in, Path path) throws IOException {
+		if (in.remaining() < 8 || in.getInt() != MAGIC) {
+			throw new IOException(path + " is not a network snapshot");
+		}
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException(path + " is a version " + version + " snapshot, only version " + VERSION
+					+ " can be read");
+		}
+		need(in, 24, path);
+		int n = count(in.getInt(), "station", path);
+		int m = count(in.getInt(), "rail", path);
+		in.getLong(); // the max flow, only there for tools reading the header
+		float maxX = in.getFloat();
+		float maxY = in.getFloat();
+		float[] x = getFloats(in, n, path);
+		float[] y = getFloats(in, n, path);
+		int[] tail = ids(getInts(in, m, path), n, "station", path);
+		int[] head = ids(getInts(in, m, path), n, "station", path);
+		long[] capacity = getLongs(in, m, path);
+		long[] flow = getLongs(in, m, path);
+		int[] cost = getInts(in, m, path);
+		for (int e = 0; e < m; e++) {
+			if (capacity[e] < 0 || flow[e] < 0 || flow[e] > capacity[e] || cost[e] < 0) {
+				throw new IOException(path + " is corrupt : rail " + e + " has capacity " + capacity[e] + ", flow "
+						+ flow[e] + " and cost " + cost[e]);
+			}
+		}
+		int[] outStart = starts(getInts(in, n + 1, path), m, path);
+		int[] outEdges = ids(getInts(in, outStart[n], path), m, "rail", path);
+		int[] inStart = starts(getInts(in, n + 1, path), m, path);
+		int[] inEdges = ids(getInts(in, inStart[n], path), m, "rail", path);
+		BitSet removed = new BitSet();
+		for (int e : ids(getInts(in, count(getInt(in, path), "removed rail", path), path), m, "rail", path)) {
+			removed.set(e);
+		}
+		// each rail that is not removed is in the rows of its two stations, and only there
+		rows(outStart, outEdges, tail, removed, m, path);
+		rows(inStart, inEdges, head, removed, m, path);
+		int[] sources = ids(getInts(in, count(getInt(in, path), "source", path), path), n, "station", path);
+		int[] sinks = ids(getInts(in, count(getInt(in, path), "sink", path), path), n, "station", path);
+
+		CompactNetwork<Node> network = new CompactNetwork<Node>();
+		Node[] nodes = new Node[n];
+		for (int i = 0; i < n; i++) {
+			Node v = new Node(i, x[i], y[i]);
+			nodes[i] = v;
+			network.addVertex(v);
+			int length = getInt(in, path);
+			if (length < -1) {
+				throw new IOException(path + " is corrupt : station " + i + " has a name of length " + length);
+			}
+			if (length >= 0) {
+				need(in, length, path);
+				byte[] name = new byte[length];
+				in.get(name);
+				network.nameVertex(new String(name, StandardCharsets.UTF_8), v);
+			}
+		}
+		if (sources.length > 0 && sinks.length > 0) {
+			try {
+				network.setTerminals(nodes(nodes, sources), nodes(nodes, sinks));
+			} catch (IllegalArgumentException e) {
+				throw new IOException(path + " is corrupt : " + e.getMessage());
+			}
+		}
+		network.getFlowGraph().restore(m, tail, head, capacity, flow, cost, removed, outStart, outEdges, inStart,
+				inEdges);
+		return new Game(network, maxX, maxY);
+	}
+
+	private static int count(int count, String what, Path path) throws IOException {
+		if (count < 0) {
+			throw new IOException(path + " is corrupt : " + count + " " + what + "s");
+		}
+		return count;
+	}
+
+	private static int[] ids(int[] ids, int bound, String what, Path path) throws IOException {
+		for (int id : ids) {
+			if (id < 0 || id >= bound) {
+				throw new IOException(path + " is corrupt : " + what + " " + id + " of " + bound);
+			}
+		}
+		return ids;
+	}
+
+	// the row starts of an adjacency array : from 0, never decreasing, and no more rails than there are
+	private static int[] starts(int[] start, int m, Path path) throws IOException {
+		int n = start.length - 1;
+		for (int u = 0; u < n; u++) {
+			if (start[u] > start[u + 1]) {
+				throw new IOException(path + " is corrupt : the adjacency rows of station " + u + " overlap");
+			}
+		}
+		if (start[0] != 0 || start[n] > m) {
+			throw new IOException(path + " is corrupt : adjacency arrays of " + start[0] + " to " + start[n]
+					+ " rails out of " + m);
+		}
+		return start;
+	}
+
+	private static void rows(int[] start, int[] rows, int[] endpoint, BitSet removed, int m, Path path)
+			throws IOException {
+		if (rows.length != m - removed.cardinality()) {
+			throw new IOException(path + " is corrupt : " + rows.length + " rails in the adjacency arrays, "
+					+ (m - removed.cardinality()) + " expected");
+		}
+		BitSet seen = new BitSet(m);
+		for (int u = 0; u + 1 < start.length; u++) {
+			for (int i = start[u]; i < start[u + 1]; i++) {
+				int e = rows[i];
+				if (endpoint[e] != u || removed.get(e) || seen.get(e)) {
+					throw new IOException(path + " is corrupt : rail " + e + " in the adjacency row of station " + u);
+				}
+				seen.set(e);
+			}
+		}
+	}
+
+	private static ArrayList<Node> nodes(Node[] nodes, int[] ids) {
+		ArrayList<Node> list = new ArrayList<Node>();
+		for (int id : ids) {
+			list.add(nodes[id]);
+		}
+		return list;
+	}
+
+	// CompactNetwork already has the graph, any other network is copied edge by edge (vertices are
+	// numbered by their Node id and edges by their own id, the ids no longer in use become removed edges)
+	private static FlowGraph toFlowGraph(Network<Node, Integer> network) {
+		if (network instanceof CompactNetwork) {
+			return ((CompactNetwork<Node>) network).getFlowGraph();
+		}
+		FlowGraph graph = new FlowGraph();
+		for (int i = 0; i < network.getVertices().size(); i++) {
+			graph.addVertex();
+		}
+		int edgeCount = 0;
+		for (int e : network.getEdges()) {
+			edgeCount = Math.max(edgeCount, e + 1);
+		}
+		Node any = network.getVertices().iterator().next();
+		for (int e = 0; e < edgeCount; e++) {
+			if (network.getEdges().contains(e)) {
+				graph.addEdge(network.getSource(e).id, network.getDest(e).id);
+				graph.capacity[e] = network.getCapacity(e);
+				graph.flow[e] = network.getFlowValue(e);
+				graph.cost[e] = network.getCost(e);
+			} else {
+				graph.addEdge(any.id, any.id);
+				graph.removeEdge(e);
+			}
+		}
+		return graph;
+	}
+
+	// throws an IOException unless the buffer still holds that many bytes
+	private static void need(ByteBuffer in, long bytes, Path path) throws IOException {
+		if (bytes > in.remaining()) {
+			throw new IOException(path + " is truncated");
+		}
+	}
+
+	private static int getInt(ByteBuffer in, Path path) throws IOException {
+		need(in, 4, path);
+		return in.getInt();
+	}
+
+	private static int[] getInts(ByteBuffer in, int count, Path path) throws IOException {
+		need(in, 4L * count, path);
+		int[] values = new int[count];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + 4 * count);
+		return values;
+	}
+
+	private static long[] getLongs(ByteBuffer in, int count, Path path) throws IOException {
+		need(in, 8L * count, path);
+		long[] values = new long[count];
+		in.asLongBuffer().get(values);
+		in.position(in.position() + 8 * count);
+		return values;
+	}
+
+	private static float[] getFloats(ByteBuffer in, int count, Path path) throws IOException {
+		need(in, 4L * count, path);
+		float[] values = new float[count];
+		in.asFloatBuffer().get(values);
+		in.position(in.position() + 4 * count);
+		return values;
+	}
+
+	private void putInt(int value) throws IOException {
+		if (buffer.remaining() < 4) {
+			flush();
+		}
+		buffer.putInt(value);
+	}
+
+	private void putLong(long value) throws IOException {
+		if (buffer.remaining() < 8) {
+			flush();
+		}
+		buffer.putLong(value);
+	}
+
+	private void putFloat(float value) throws IOException {
+		if (buffer.remaining() < 4) {
+			flush();
+		}
+		buffer.putFloat(value);
+	}
+
+	private void putInts(int[] values, int count) throws IOException {
+		for (int done = 0; done < count;) {
+			if (buffer.remaining() < 4) {
+				flush();
+			}
+			int chunk = Math.min(count - done, buffer.remaining() / 4);
+			buffer.asIntBuffer().put(values, done, chunk);
+			buffer.position(buffer.position() + 4 * chunk);
+			done += chunk;
+		}
+	}
+
+	private void putLongs(long[] values, int count) throws IOException {
+		for (int done = 0; done < count;) {
+			if (buffer.remaining() < 8) {
+				flush();
+			}
+			int chunk = Math.min(count - done, buffer.remaining() / 8);
+			buffer.asLongBuffer().put(values, done, chunk);
+			buffer.position(buffer.position() + 8 * chunk);
+			done += chunk;
+		}
+	}
+
+	private void putBytes(byte[] bytes) throws IOException {
+		for (int done = 0; done < bytes.length;) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int chunk = Math.min(bytes.length - done, buffer.remaining());
+			buffer.put(bytes, done, chunk);
+			done += chunk;
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,170 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.util.HashSet;
+
+// draws the network of a game with StdDraw. Everything the drawing needs is computed once here : where
+// each rail, its arrow and its capacity label go, where each station and its name go, so drawing a rail
+// is a few StdDraw calls and no lookup in the network. StdDraw draws into its offscreen buffer (see
+// UserInterface.setUI) and nothing shows until StdDraw.show(), so a change is drawn over the previous
+// picture instead of redrawing it all : drawRail redraws the rails crossing the area around the rail in
+// the color they were last drawn in, then the rail on top of them, then the stations and names of that
+// area, so whatever the rail went over is drawn again over it.
+
+public class NetworkView {
+
+	private static final Font NAME_FONT = new Font("Arial", Font.BOLD, 15);
+	private static final Font WEIGHT_FONT = new Font("Arial", Font.ITALIC, 15);
+	private static final double ARROW_MAGNITUDE = 0.01;
+	private static final double NAME_OFFSET = 0.017; // names are written above their station
+	// how far around a rail a station or its name can be drawn over by it
+	private static final double REPAIR_X = 0.05;
+	private static final double REPAIR_Y = 0.04;
+
+	private final StationIndex stationIndex;
+	// by station id
+	private final double[] stationX;
+	private final double[] stationY;
+	private final String[] names;
+	private final boolean[] terminals;
+	// by rail : the line, the two strokes of the arrow head, the label
+	private final double[] x0, y0, x1, y1;
+	private final double[] mx, my, gx, gy, hx, hy;
+	private final double[] labelX, labelY;
+	private final String[] labels;
+	private final Color[] colors; // the color each rail was last drawn in
+	private Font font = null; // the font StdDraw has, so it is only set when it changes
+
+	public NetworkView(Game game) {
+		Network<Node, Integer> network = game.getSolutionNetwork();
+		double xmax = game.getMaxX();
+		double ymax = game.getMaxY();
+		stationIndex = game.getStationIndex();
+
+		int stations = 0;
+		for (Node n : network.getVertices()) {
+			stations = Math.max(stations, n.id + 1);
+		}
+		stationX = new double[stations];
+		stationY = new double[stations];
+		names = new String[stations];
+		terminals = new boolean[stations];
+		HashSet<Node> terminalSet = new HashSet<Node>(network.getSources());
+		terminalSet.addAll(network.getSinks());
+		for (Node n : network.getVertices()) {
+			stationX[n.id] = n.x / xmax;
+			stationY[n.id] = 1 - n.y / ymax;
+			names[n.id] = network.getNameOrNullByVertex(n);
+			terminals[n.id] = terminalSet.contains(n);
+		}
+
+		int rails = 0;
+		for (int e : network.getEdges()) {
+			rails = Math.max(rails, e + 1);
+		}
+		x0 = new double[rails];
+		y0 = new double[rails];
+		x1 = new double[rails];
+		y1 = new double[rails];
+		mx = new double[rails];
+		my = new double[rails];
+		gx = new double[rails];
+		gy = new double[rails];
+		hx = new double[rails];
+		hy = new double[rails];
+		labelX = new double[rails];
+		labelY = new double[rails];
+		labels = new String[rails];
+		colors = new Color[rails];
+		for (int e : network.getEdges()) {
+			x0[e] = stationX[network.getSource(e).id];
+			y0[e] = stationY[network.getSource(e).id];
+			x1[e] = stationX[network.getDest(e).id];
+			y1[e] = stationY[network.getDest(e).id];
+			// the arrow sits at three quarters of the rail, pointing to its destination
+			mx[e] = (x0[e] + 3 * x1[e]) / 4;
+			my[e] = (y0[e] + 3 * y1[e]) / 4;
+			double angle = Math.atan2(y0[e] - my[e], x0[e] - mx[e]);
+			gx[e] = mx[e] + ARROW_MAGNITUDE * Math.cos(angle + Math.PI / 6);
+			gy[e] = my[e] + ARROW_MAGNITUDE * Math.sin(angle + Math.PI / 6);
+			hx[e] = mx[e] + ARROW_MAGNITUDE * Math.cos(angle - Math.PI / 6);
+			hy[e] = my[e] + ARROW_MAGNITUDE * Math.sin(angle - Math.PI / 6);
+			labelX[e] = (x0[e] + x1[e]) / 2;
+			labelY[e] = (y0[e] + y1[e]) / 2;
+			long capacity = network.getCapacity(e);
+			labels[e] = capacity == FlowGraph.INFINITE || capacity == 999999 ? "inf" : Long.toString(capacity);
+			colors[e] = StdDraw.CYAN;
+		}
+	}
+
+	// the rails, then the stations, then the names inside the rectangle
+	public void drawAll(double minX, double minY, double maxX, double maxY) {
+		for (int e : stationIndex.railsIn(minX, minY, maxX, maxY)) {
+			drawRailOnly(e, colors[e]);
+		}
+		for (Node n : stationIndex.stationsIn(minX, minY, maxX, maxY)) {
+			drawStation(n);
+		}
+		for (Node n : stationIndex.stationsIn(minX, minY, maxX, maxY)) {
+			writeName(n.id);
+		}
+	}
+
+	// a rail and its capacity in a new color. The other rails crossing the area around it are drawn again
+	// under it and the stations and names of that area over it, so nothing it went over stays hidden.
+	public void drawRail(int e, Color color) {
+		colors[e] = color;
+		double minX = Math.min(x0[e], x1[e]) - REPAIR_X;
+		double maxX = Math.max(x0[e], x1[e]) + REPAIR_X;
+		double minY = Math.min(y0[e], y1[e]) - REPAIR_Y;
+		double maxY = Math.max(y0[e], y1[e]) + REPAIR_Y;
+		for (int other : stationIndex.railsIn(minX, minY, maxX, maxY)) {
+			if (other != e) {
+				drawRailOnly(other, colors[other]);
+			}
+		}
+		drawRailOnly(e, color);
+		for (Node n : stationIndex.stationsIn(minX, minY, maxX, maxY)) {
+			drawStation(n);
+			writeName(n.id);
+		}
+	}
+
+	// a station in its own color, magenta for a source or a sink and blue otherwise
+	public void drawStation(Node n) {
+		drawStation(n, terminals[n.id] ? StdDraw.MAGENTA : StdDraw.BLUE);
+	}
+
+	public void drawStation(Node n, Color color) {
+		StdDraw.setPenColor(color);
+		StdDraw.setPenRadius(0.03);
+		StdDraw.point(stationX[n.id], stationY[n.id]);
+	}
+
+	private void drawRailOnly(int e, Color color) {
+		StdDraw.setPenRadius(0.007);
+		StdDraw.setPenColor(color);
+		StdDraw.line(x0[e], y0[e], x1[e], y1[e]);
+		StdDraw.setPenRadius(0.005);
+		StdDraw.line(mx[e], my[e], gx[e], gy[e]);
+		StdDraw.line(mx[e], my[e], hx[e], hy[e]);
+		StdDraw.setPenColor(StdDraw.BLACK);
+		setFont(WEIGHT_FONT);
+		StdDraw.setPenRadius(0.007);
+		StdDraw.text(labelX[e], labelY[e], labels[e]);
+	}
+
+	private void writeName(int id) {
+		if (names[id] != null) {
+			StdDraw.setPenColor(StdDraw.BLACK);
+			setFont(NAME_FONT);
+			StdDraw.text(stationX[id], stationY[id] + NAME_OFFSET, names[id]);
+		}
+	}
+
+	private void setFont(Font f) {
+		if (font != f) {
+			StdDraw.setFont(f);
+			font = f;
+		}
+	}
+}
@@ -1,9 +1,13 @@
 
+// a station of the rail network. id is the index the network interns the node at (Game numbers the
+// nodes in the order of the vertex file), so per station data can live in arrays indexed by id.
 class Node {
+	public final int id;
 	public final float x;
 	public final float y;
 
-	public Node(float xaxis, float yaxis) {
+	public Node(int id, float xaxis, float yaxis) {
+		this.id = id;
 		x = xaxis;
 		y = yaxis;
 	}
@@ -0,0 +1,190 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// breadth first search over the residual arcs of a FlowGraph that expands one level at a time on a
+// fork-join pool : the vertices of the current level (the frontier) are split between tasks, a vertex
+// belongs to the first task that sets its bit in a shared atomic bitset, and each task appends the
+// vertices it got to the next level in a single block. The levels follow each other in the order
+// array, exactly like the queue of the sequential search, so callers get the same result either way
+// (only the order of the vertices inside a level may differ).
+// Below THRESHOLD vertices plus edges, or without a second processor, the sequential search is used :
+// on small graphs the tasks cost more than they save.
+// An instance is not thread safe, every solver or network keeps its own.
+
+class ParallelBfs {
+
+	static final int THRESHOLD = 1 << 16;
+	static final int[] NO_VERTICES = new int[0];
+	private static final int GRAIN = 1024; // frontier vertices expanded by a single task
+
+	private final ForkJoinPool pool;
+
+	// the search in progress, shared with the tasks
+	private FlowGraph graph;
+	private boolean reverse;
+	private int[] distance;
+	private int[] order;
+	private int level;
+	private AtomicLongArray visited;
+	private final AtomicInteger end = new AtomicInteger();
+	private final AtomicLong scanned = new AtomicLong(); // for SolverMetrics
+
+	public ParallelBfs() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public ParallelBfs(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	// distance[v] becomes the number of residual arcs on a shortest path from the closest root to v, or
+	// unreached when there is none. With reverse the arcs are followed backwards, so it is the distance
+	// from v to the closest root instead. The excluded vertices are never entered. The reached vertices
+	// are written in order by increasing distance, roots first, and their number is returned. Both
+	// arrays need room for graph.vertexCount vertices.
+	public int search(FlowGraph graph, int[] roots, boolean reverse, int[] excluded, int[] distance, int unreached,
+			int[] order) {
+		graph.index();
+		int n = graph.vertexCount;
+		Arrays.fill(distance, 0, n, unreached);
+		int last = 0;
+		for (int root : roots) {
+			if (distance[root] == unreached) {
+				distance[root] = 0;
+				order[last++] = root;
+			}
+		}
+		if ((long) n + graph.edgeCount < THRESHOLD || pool.getParallelism() < 2) {
+			// while searching, the excluded vertices hold a value that is not unreached so they are skipped
+			for (int x : excluded) {
+				distance[x] = ~unreached;
+			}
+			last = sequential(graph, reverse, distance, unreached, order, last);
+			for (int x : excluded) {
+				distance[x] = unreached;
+			}
+			return last;
+		}
+
+		this.graph = graph;
+		this.reverse = reverse;
+		this.distance = distance;
+		this.order = order;
+		visited = new AtomicLongArray((n + 63) >>> 6);
+		for (int i = 0; i < last; i++) {
+			claim(order[i]);
+		}
+		for (int x : excluded) {
+			claim(x);
+		}
+		end.set(last);
+		scanned.set(0);
+		int start = 0, stop = last;
+		for (level = 0; start < stop; level++) {
+			if (stop - start <= GRAIN) {
+				expand(start, stop);
+			} else {
+				pool.invoke(new Expand(start, stop));
+			}
+			start = stop;
+			stop = end.get();
+		}
+		SolverMetrics.search(stop, scanned.get());
+		this.graph = null;
+		this.distance = null;
+		this.order = null;
+		visited = null;
+		return stop;
+	}
+
+	private static int sequential(FlowGraph graph, boolean reverse, int[] distance, int unreached, int[] order,
+			int last) {
+		int first = 0;
+		long scanned = 0;
+		while (first < last) {
+			int u = order[first++];
+			int arcs = graph.arcCount(u);
+			scanned += arcs;
+			for (int k = 0; k < arcs; k++) {
+				int link = graph.arc(u, k);
+				int w = graph.arcHead(link);
+				// -link is the arc going from w to u
+				if (distance[w] == unreached && graph.arcResidual(reverse ? -link : link) > 0) {
+					distance[w] = distance[u] + 1;
+					order[last++] = w;
+				}
+			}
+		}
+		SolverMetrics.search(last, scanned);
+		return last;
+	}
+
+	// expands order[from ... to - 1], which all are at the current level
+	private void expand(int from, int to) {
+		int[] found = new int[64];
+		int count = 0;
+		long arcsScanned = 0;
+		for (int i = from; i < to; i++) {
+			int u = order[i];
+			int arcs = graph.arcCount(u);
+			arcsScanned += arcs;
+			for (int k = 0; k < arcs; k++) {
+				int link = graph.arc(u, k);
+				int w = graph.arcHead(link);
+				if (graph.arcResidual(reverse ? -link : link) > 0 && claim(w)) {
+					distance[w] = level + 1;
+					if (count == found.length) {
+						found = Arrays.copyOf(found, count * 2);
+					}
+					found[count++] = w;
+				}
+			}
+		}
+		scanned.addAndGet(arcsScanned);
+		if (count > 0) {
+			System.arraycopy(found, 0, order, end.getAndAdd(count), count);
+		}
+	}
+
+	// sets the bit of v, true if this call is the one that set it
+	private boolean claim(int v) {
+		int word = v >>> 6;
+		long bit = 1L << v;
+		while (true) {
+			long old = visited.get(word);
+			if ((old & bit) != 0) {
+				return false;
+			}
+			if (visited.compareAndSet(word, old, old | bit)) {
+				return true;
+			}
+		}
+	}
+
+	private class Expand extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		Expand(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= GRAIN) {
+				expand(from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Expand(from, middle), new Expand(middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,247 @@
+import java.util.Arrays;
+
+// highest-label push-relabel (Goldberg-Tarjan). Instead of looking for whole augmenting paths, the
+// source floods all its edges and every other vertex with too much incoming flow (excess) pushes it
+// to a neighbour one level lower in height, or raises its own height when it cannot. The active
+// vertex with the highest label is always discharged first, which bounds the work by O(V^2 sqrt(E)).
+// Two heuristics make it fast in practice :
+// - global relabel : every few O(V + E) units of work, the heights are reset to the exact residual
+// distance to the sink with a backward breadth first search (run by ParallelBfs, in parallel on large
+// networks).
+// - gap : when no vertex is left at some height h, every vertex above h is cut off from the sink and
+// jumps directly to height V.
+// The first phase stops with a maximum preflow (the excess that cannot reach a sink is stranded at
+// height V), the second phase runs the same discharge loop towards the sources to give that excess
+// back so the graph holds a valid flow again. With several sources and sinks, every source floods its
+// edges and the heights are the distances to the closest sink (or source in the second phase).
+
+public class PushRelabelSolver implements MaxFlowSolver {
+
+	private FlowGraph graph;
+	private int n;
+	private int[] targets;
+	private int[] others;
+	private boolean[] isTarget = new boolean[0];
+	private int[] height = new int[0];
+	private int[] currentArc = new int[0];
+	private long[] excess = new long[0];
+	private int[] queue = new int[0];
+	private ParallelBfs bfs = new ParallelBfs();
+
+	// active vertices grouped by height (singly linked) and all the vertices below height n grouped by
+	// height (doubly linked, used to find gaps)
+	private int[] activeHead = new int[0];
+	private int[] activeNext = new int[0];
+	private int[] levelHead = new int[0];
+	private int[] levelNext = new int[0];
+	private int[] levelPrev = new int[0];
+	private int maxActive;
+	private int maxLevel;
+	private long work;
+
+	public long solve(FlowGraph graph, int[] sources, int[] sinks) {
+		MaxFlowSolver.checkBounded(graph, sources, sinks);
+		graph.index();
+		this.graph = graph;
+		n = graph.vertexCount;
+		if (height.length < n) {
+			isTarget = new boolean[n];
+			height = new int[n];
+			currentArc = new int[n];
+			excess = new long[n];
+			queue = new int[n];
+			activeHead = new int[n];
+			activeNext = new int[n];
+			levelHead = new int[n];
+			levelNext = new int[n];
+			levelPrev = new int[n];
+		}
+
+		// the flow we start from is valid, so only the terminals can have a non zero balance
+		Arrays.fill(excess, 0, n, 0);
+		for (int e = 0; e < graph.edgeCount; e++) {
+			excess[graph.head[e]] += graph.flow[e];
+			excess[graph.tail[e]] -= graph.flow[e];
+		}
+		long flood = floodLimit(graph, sources);
+		for (int source : sources) {
+			for (int k = 0, arcs = graph.arcCount(source); k < arcs; k++) {
+				int link = graph.arc(source, k);
+				int v = graph.arcHead(link);
+				long residual = Math.min(graph.arcResidual(link), flood);
+				if (residual > 0) {
+					graph.push(link, residual);
+					excess[source] -= residual;
+					excess[v] += residual;
+				}
+			}
+		}
+
+		discharge(sinks, sources);
+		discharge(sources, sinks);
+		this.graph = null;
+		this.targets = null;
+		this.others = null;
+		return graph.netOutflow(sources);
+	}
+
+	// an INFINITE edge leaving a source cannot be flooded with its capacity : the excesses would overflow.
+	// No flow is larger than the finite capacities all together, so that is enough to saturate it, as
+	// long as every source edge can be flooded that much without overflowing the excesses either.
+	private static long floodLimit(FlowGraph graph, int[] sources) {
+		long total = 0;
+		long arcs = 1;
+		try {
+			for (int e = 0; e < graph.edgeCount; e++) {
+				if (graph.capacity[e] != FlowGraph.INFINITE) {
+					total = Math.addExact(total, graph.capacity[e]);
+				}
+			}
+			for (int source : sources) {
+				arcs += graph.arcCount(source);
+			}
+			Math.multiplyExact(total, arcs);
+		} catch (ArithmeticException e) {
+			throw new ArithmeticException("the capacities are too large for push-relabel, use another solver");
+		}
+		return total;
+	}
+
+	// moves all the excess it can towards the targets, the other terminals are left out of the game
+	private void discharge(int[] targets, int[] others) {
+		this.targets = targets;
+		this.others = others;
+		for (int t : targets) {
+			isTarget[t] = true;
+		}
+		globalRelabel();
+		long relabelThreshold = 6L * n + graph.edgeCount;
+
+		while (maxActive >= 0) {
+			int u = activeHead[maxActive];
+			if (u < 0) {
+				maxActive--;
+				continue;
+			}
+			activeHead[maxActive] = activeNext[u];
+			discharge(u);
+			if (work > relabelThreshold) {
+				globalRelabel();
+			}
+		}
+		for (int t : targets) {
+			isTarget[t] = false;
+		}
+	}
+
+	private void discharge(int u) {
+		while (excess[u] > 0) {
+			if (currentArc[u] == graph.arcCount(u)) {
+				relabel(u);
+				if (height[u] >= n) {
+					return;
+				}
+				continue;
+			}
+			int link = graph.arc(u, currentArc[u]);
+			int v = graph.arcHead(link);
+			long residual = graph.arcResidual(link);
+			if (residual > 0 && height[v] == height[u] - 1) {
+				long delta = Math.min(excess[u], residual);
+				graph.push(link, delta);
+				excess[u] -= delta;
+				excess[v] += delta;
+				if (excess[v] == delta && !isTarget[v]) {
+					activate(v);
+				}
+			} else {
+				currentArc[u]++;
+			}
+		}
+	}
+
+	private void relabel(int u) {
+		work += graph.arcCount(u) + 12;
+		int old = height[u];
+		removeFromLevel(u);
+		if (levelHead[old] < 0) { // gap : u was the last vertex at this height
+			for (int h = old + 1; h <= maxLevel; h++) {
+				for (int v = levelHead[h]; v >= 0; v = levelNext[v]) {
+					height[v] = n;
+				}
+				levelHead[h] = -1;
+			}
+			maxLevel = old - 1;
+			height[u] = n;
+			return;
+		}
+		int newHeight = n;
+		for (int k = 0, arcs = graph.arcCount(u); k < arcs; k++) {
+			int link = graph.arc(u, k);
+			if (graph.arcResidual(link) > 0) {
+				newHeight = Math.min(newHeight, height[graph.arcHead(link)] + 1);
+			}
+		}
+		height[u] = newHeight;
+		currentArc[u] = 0;
+		if (newHeight < n) {
+			addToLevel(u);
+		}
+	}
+
+	// exact heights : residual distance to the closest target, found by a breadth first search on reversed arcs
+	private void globalRelabel() {
+		work = 0;
+		Arrays.fill(activeHead, 0, n, -1);
+		Arrays.fill(levelHead, 0, n, -1);
+		maxActive = -1;
+		maxLevel = 0;
+
+		int last = bfs.search(graph, targets, true, others, height, n, queue);
+
+		for (int i = 0; i < last; i++) {
+			int v = queue[i];
+			if (isTarget[v]) {
+				continue;
+			}
+			currentArc[v] = 0;
+			addToLevel(v);
+			if (excess[v] > 0) {
+				activate(v);
+			}
+		}
+	}
+
+	private void activate(int v) {
+		int h = height[v];
+		activeNext[v] = activeHead[h];
+		activeHead[h] = v;
+		if (h > maxActive) {
+			maxActive = h;
+		}
+	}
+
+	private void addToLevel(int v) {
+		int h = height[v];
+		levelPrev[v] = -1;
+		levelNext[v] = levelHead[h];
+		if (levelHead[h] >= 0) {
+			levelPrev[levelHead[h]] = v;
+		}
+		levelHead[h] = v;
+		if (h > maxLevel) {
+			maxLevel = h;
+		}
+	}
+
+	private void removeFromLevel(int v) {
+		if (levelPrev[v] >= 0) {
+			levelNext[levelPrev[v]] = levelNext[v];
+		} else {
+			levelHead[height[v]] = levelNext[v];
+		}
+		if (levelNext[v] >= 0) {
+			levelPrev[levelNext[v]] = levelPrev[v];
+		}
+	}
+}
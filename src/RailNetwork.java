@@ -1,51 +1,359 @@
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashSet;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+// usage : RailNetwork [vertex file] [edge file] [options], a missing file is read from the standard input.
+// The reports asked for (--compare, --cut-tree, --pair, --vital, --min-cuts, then the solution) are all
+// printed, in that order, and the game only starts when none was.
+// --quiet prints the solution instead of starting the game
+// --format=text|csv|jsonl|binary prints it in that format instead (see FlowWriter), text by default
+// --only=saturated|cut prints only the saturated edges or the edges of the cut
+// --output=<file> writes it to that file instead of the standard output
+// --compact stores the network in primitive arrays with long capacities and flows, see CompactNetwork
+// --solver=edmonds-karp|dinic|push-relabel picks the max flow algorithm
+// --sources=<name,name,...> --sinks=<name,name,...> the terminal stations, Source and Sink by default
+// --save=<file> writes the solved network to a binary snapshot (no game is started)
+// --load=<file> reopens a snapshot instead of reading the text files
+// --compare=<file> prints what differs between the solved network and a snapshot
+// --batch=<manifest or directory> solves every scenario listed and prints one JSON line per scenario,
+// see BatchSolver (no game is started)
+// --threads=<n> worker threads for --batch, --cut-tree and --vital, the number of processors by default
+// --cut-tree prints the Gomory-Hu tree of the network, the minimum cut between every pair of stations
+// with rails taken both ways (see GomoryHuTree)
+// --pair=<name,name> prints the minimum cut between two stations read from that tree
+// --vital=<k> prints how much losing each rail lowers the max flow, then the k rails whose loss lowers it
+// the most (see Interdiction)
+// --min-cuts=<n> prints the rails in every minimum cut, those in only some, then the first n minimum cuts
+// (see MinCuts)
+// --serve=<port> keeps the solved network in memory and answers queries over HTTP on localhost (port 0
+// picks a free one) instead of starting the game, see NetworkServer
+// --network=<name>,<vertex file>,<edge file> a network to serve under that name, can be repeated. Without
+// it the network read the usual way is served as "default".
+// --stats turns SolverMetrics on (also over JMX) and prints its summary as one JSON line on the standard
+// error when done, or just before the game starts
 
 public class RailNetwork {
 
 	public static void main(String[] args) throws IOException {
 
-		try (InputStream is = args.length == 0 ? System.in : new FileInputStream(new File(args[0]))) {
-
-			try (InputStream is2 = args.length == 1 ? System.in : new FileInputStream(new File(args[1]))) {
-
-				if (args.length > 2) {
-
-					if (args[2].equals("--quiet")) {
-
-						Game game = new Game(is, is2);
-						Network<Node, Integer> network = game.getSolutionNetwork();
-						System.out.println("The max flow value of the network is "
-								+ network.getMaxFlow() + ".\n");
-						System.out.println("The flow distribution accross edges is : \n");
-
-						for (int j = 0; j < network.getEdges().size(); j++) {
-							System.out.println(network
-									.getNameOrNullByVertex(network.getSource(j))
-									+ " -> "
-									+ network
-											.getNameOrNullByVertex(network.getDest(j))
-									+ "		capacity : " + network.getWeight(j) + "		flow : "
-									+ network.getFlow(j));
-						}
-
-						HashSet<Integer> edgesToCut = network.getOptimalCut();
-						System.out.print("\nHere are the edges to obtain minimum cut : ");
-						for (int i : edgesToCut) {
-							System.out.print(network.getNameOrNullByVertex(network.getSource(i)) + " -> "
-									+ network.getNameOrNullByVertex(network.getDest(i)) + "  ");
-						}
-					}
+		ArrayList<String> files = new ArrayList<String>();
+		boolean quiet = false;
+		FlowWriter.Format format = null;
+		FlowWriter.Filter filter = FlowWriter.Filter.ALL;
+		String output = null;
+		boolean compact = false;
+		MaxFlowSolver solver = null;
+		String solverName = null;
+		String save = null;
+		String load = null;
+		String compare = null;
+		String batch = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean stats = false;
+		List<String> sources = null;
+		List<String> sinks = null;
+		boolean cutTree = false;
+		String[] pair = null;
+		Integer vital = null;
+		Integer minCuts = null;
+		Integer serve = null;
+		ArrayList<String[]> served = new ArrayList<String[]>();
+		for (String arg : args) {
+			if (arg.equals("--quiet")) {
+				quiet = true;
+			} else if (arg.startsWith("--format=")) {
+				format = FlowWriter.Format.named(arg.substring("--format=".length()));
+			} else if (arg.startsWith("--only=")) {
+				filter = FlowWriter.Filter.named(arg.substring("--only=".length()));
+			} else if (arg.startsWith("--output=")) {
+				output = arg.substring("--output=".length());
+			} else if (arg.equals("--stats")) {
+				stats = true;
+			} else if (arg.equals("--cut-tree")) {
+				cutTree = true;
+			} else if (arg.startsWith("--pair=")) {
+				pair = arg.substring("--pair=".length()).split(",");
+				if (pair.length != 2) {
+					throw new IllegalArgumentException("--pair expects two station names");
+				}
+			} else if (arg.startsWith("--vital=")) {
+				vital = Integer.parseInt(arg.substring("--vital=".length()));
+				if (vital < 1) {
+					throw new IllegalArgumentException("--vital must be at least 1");
+				}
+			} else if (arg.startsWith("--min-cuts=")) {
+				minCuts = Integer.parseInt(arg.substring("--min-cuts=".length()));
+				if (minCuts < 0) {
+					throw new IllegalArgumentException("--min-cuts must not be negative");
+				}
+			} else if (arg.startsWith("--serve=")) {
+				serve = Integer.parseInt(arg.substring("--serve=".length()));
+			} else if (arg.startsWith("--network=")) {
+				String[] network = arg.substring("--network=".length()).split(",");
+				if (network.length != 3) {
+					throw new IllegalArgumentException("--network expects a name, a vertex file and an edge file");
+				}
+				served.add(network);
+			} else if (arg.equals("--compact")) {
+				compact = true;
+			} else if (arg.startsWith("--solver=")) {
+				solverName = arg.substring("--solver=".length());
+				solver = MaxFlowSolver.named(solverName);
+			} else if (arg.startsWith("--sources=")) {
+				sources = Arrays.asList(arg.substring("--sources=".length()).split(","));
+			} else if (arg.startsWith("--sinks=")) {
+				sinks = Arrays.asList(arg.substring("--sinks=".length()).split(","));
+			} else if (arg.startsWith("--save=")) {
+				save = arg.substring("--save=".length());
+			} else if (arg.startsWith("--load=")) {
+				load = arg.substring("--load=".length());
+			} else if (arg.startsWith("--compare=")) {
+				compare = arg.substring("--compare=".length());
+			} else if (arg.startsWith("--batch=")) {
+				batch = arg.substring("--batch=".length());
+			} else if (arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(arg.substring("--threads=".length()));
+				if (threads < 1) {
+					throw new IllegalArgumentException("--threads must be at least 1");
 				}
+			} else {
+				files.add(arg);
+			}
+		}
+
+		if (stats) {
+			SolverMetrics.get().setEnabled(true);
+			SolverMetrics.register();
+		}
+
+		if (batch != null) {
+			// each worker needs its own solver, so they are created from the name
+			new BatchSolver(compact, solverName, sources, sinks, threads).run(BatchSolver.readScenarios(Paths.get(batch)));
+			printStats(stats);
+			return;
+		}
+
+		if (serve != null) {
+			NetworkServer server = new NetworkServer(
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), serve), threads, solverName);
+			if (served.isEmpty()) {
+				server.add("default", load(files, load, compact, solver, sources, sinks).getSolutionNetwork());
+			}
+			for (String[] network : served) {
+				// each network needs its own solver
+				server.add(network[0], load(Arrays.asList(network[1], network[2]), null, compact,
+						solverName == null ? null : MaxFlowSolver.named(solverName), sources, sinks)
+								.getSolutionNetwork());
+			}
+			server.start();
+			System.err.println("serving on http://" + server.getAddress().getHostString() + ":"
+					+ server.getAddress().getPort());
+			return;
+		}
+
+		Game game = load(files, load, compact, solver, sources, sinks);
+
+		if (save != null) {
+			NetworkSnapshot.write(game, Paths.get(save));
+		}
+		// every report asked for, one after the other, and the game only when none was
+		boolean report = false;
+		if (compare != null) {
+			printDifferences(game.getSolutionNetwork(), NetworkSnapshot.read(Paths.get(compare)).getSolutionNetwork());
+			report = true;
+		}
+		if (cutTree || pair != null) {
+			GomoryHuTree<Node, Integer> tree = new GomoryHuTree<Node, Integer>(game.getSolutionNetwork(), solverName,
+					threads);
+			if (cutTree) {
+				printCutTree(game.getSolutionNetwork(), tree);
+			}
+			if (pair != null) {
+				printPairCut(game.getSolutionNetwork(), tree, pair[0], pair[1]);
+			}
+			report = true;
+		}
+		if (vital != null) {
+			printVitalRails(game.getSolutionNetwork(),
+					new Interdiction<Node, Integer>(game.getSolutionNetwork(), solverName, threads), vital);
+			report = true;
+		}
+		if (minCuts != null) {
+			printMinCuts(game.getSolutionNetwork(), game.getMinCuts(), minCuts);
+			report = true;
+		}
+		if (quiet || format != null || output != null || filter != FlowWriter.Filter.ALL) {
+			printSolution(game.getSolutionNetwork(), format == null ? FlowWriter.Format.TEXT : format, filter,
+					output);
+			report = true;
+		}
+		if (!report && save == null) {
+			printStats(stats);
+			UserInterface gui = new UserInterface(game);
+			gui.runUI();
+			return;
+		}
+		printStats(stats);
+	}
+
+	// a snapshot when load is set, the two files otherwise (the standard input for the missing ones)
+	private static Game load(List<String> files, String load, boolean compact, MaxFlowSolver solver,
+			List<String> sources, List<String> sinks) throws IOException {
+		if (load != null) {
+			return NetworkSnapshot.read(Paths.get(load));
+		}
+		try (InputStream is = files.size() == 0 ? System.in : new FileInputStream(new File(files.get(0)))) {
+
+			try (InputStream is2 = files.size() <= 1 ? System.in : new FileInputStream(new File(files.get(1)))) {
+
+				Network<Node, Integer> solutionNetwork = compact ? new CompactNetwork<Node>()
+						: new AdjacencyNetwork<Node, Integer>();
+				if (solver != null) {
+					solutionNetwork.setMaxFlowSolver(solver);
+				}
+				return new Game(is, is2, solutionNetwork, sources, sinks);
+			}
+		}
+	}
 
-				else {
-					UserInterface gui = new UserInterface(new Game(is, is2));
-					gui.runUI();
+	// once the work asked for is done, but before the game starts : the game itself is not measured
+	private static void printStats(boolean stats) {
+		if (stats) {
+			System.err.println(SolverMetrics.get().getSummary());
+		}
+	}
+
+	private static void printSolution(Network<Node, Integer> network, FlowWriter.Format format,
+			FlowWriter.Filter filter, String output) throws IOException {
+		if (output != null) {
+			try (FileChannel channel = FileChannel.open(Paths.get(output), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				new FlowWriter(channel, format, filter).write(network);
+			}
+		} else {
+			System.out.flush();
+			// not closed, that would close the standard output
+			FileChannel channel = new FileOutputStream(FileDescriptor.out).getChannel();
+			new FlowWriter(channel, format, filter).write(network);
+		}
+	}
+
+	private static void printCutTree(Network<Node, Integer> network, GomoryHuTree<Node, Integer> tree) {
+		for (Node v : tree.getVertices()) {
+			Node parent = tree.getParent(v);
+			if (parent != null) {
+				System.out.println(network.getNameOrNullByVertex(v) + " - " + network.getNameOrNullByVertex(parent)
+						+ "		min cut : " + cutValue(tree.getParentCut(v)));
+			}
+		}
+	}
+
+	private static void printPairCut(Network<Node, Integer> network, GomoryHuTree<Node, Integer> tree, String a,
+			String b) {
+		Node from = station(network, a);
+		Node to = station(network, b);
+		long value = tree.minCut(from, to);
+		System.out.println("The min cut between " + a + " and " + b + " is " + cutValue(value) + ".");
+		if (value != GomoryHuTree.INFINITE) {
+			System.out.print("Here are the edges to cut : ");
+			for (int i : tree.cutEdges(from, to)) {
+				System.out.print(network.getNameOrNullByVertex(network.getSource(i)) + " -> "
+						+ network.getNameOrNullByVertex(network.getDest(i)) + "  ");
+			}
+			System.out.println();
+		}
+	}
+
+	private static void printVitalRails(Network<Node, Integer> network, Interdiction<Node, Integer> interdiction,
+			int k) {
+		System.out.println("The max flow value of the network is " + interdiction.getMaxFlow() + ".");
+		for (int e : interdiction.getVitalRails()) {
+			System.out.println(rail(network, e) + "		vitality : " + interdiction.getVitality(e));
+		}
+		Interdiction.Attack<Integer> attack = interdiction.attack(k);
+		System.out.print("Losing " + attack.getRails().size() + " rails lowers it to " + attack.getMaxFlow() + " : ");
+		for (int e : attack.getRails()) {
+			System.out.print(rail(network, e) + "  ");
+		}
+		System.out.println();
+	}
+
+	private static void printMinCuts(Network<Node, Integer> network, MinCuts<Node, Integer> minCuts, int n) {
+		System.out.println("The max flow value of the network is " + minCuts.getValue() + ".");
+		for (MinCuts.Criticality criticality : new MinCuts.Criticality[] { MinCuts.Criticality.EVERY,
+				MinCuts.Criticality.SOME }) {
+			System.out.print("In " + criticality.name().toLowerCase() + " minimum cut : ");
+			for (int e : network.getEdges()) {
+				if (minCuts.getCriticality(e) == criticality) {
+					System.out.print(rail(network, e) + "  ");
 				}
 			}
+			System.out.println();
+		}
+		int found = 0;
+		for (Iterator<List<Integer>> cuts = minCuts.iterator(); found < n && cuts.hasNext(); found++) {
+			System.out.print("Minimum cut " + (found + 1) + " : ");
+			for (int e : cuts.next()) {
+				System.out.print(rail(network, e) + "  ");
+			}
+			System.out.println();
+		}
+	}
+
+	private static String rail(Network<Node, Integer> network, int e) {
+		return network.getNameOrNullByVertex(network.getSource(e)) + " -> "
+				+ network.getNameOrNullByVertex(network.getDest(e));
+	}
+
+	private static Node station(Network<Node, Integer> network, String name) {
+		Node v = network.getVertexByName(name);
+		if (v == null) {
+			throw new IllegalArgumentException("unknown station " + name);
+		}
+		return v;
+	}
+
+	private static String cutValue(long value) {
+		return value == GomoryHuTree.INFINITE ? "inf" : Long.toString(value);
+	}
+
+	private static String capacity(long capacity) {
+		return capacity == FlowGraph.INFINITE ? "inf" : Long.toString(capacity);
+	}
+
+	// edges are compared by id, i.e by their line in the edge file
+	private static void printDifferences(Network<Node, Integer> network, Network<Node, Integer> snapshot) {
+		System.out.println("max flow : " + network.getMaxFlowValue() + " now, " + snapshot.getMaxFlowValue()
+				+ " in the snapshot");
+		for (int j : network.getEdges()) {
+			if (!snapshot.getEdges().contains(j)) {
+				System.out.println(network.getNameOrNullByVertex(network.getSource(j)) + " -> "
+						+ network.getNameOrNullByVertex(network.getDest(j)) + "		not in the snapshot");
+				continue;
+			}
+			boolean inCut = network.getOptimalCut().contains(j);
+			boolean inSnapshotCut = snapshot.getOptimalCut().contains(j);
+			if (network.getCapacity(j) != snapshot.getCapacity(j) || network.getFlowValue(j) != snapshot.getFlowValue(j)
+					|| inCut != inSnapshotCut) {
+				System.out.println(network.getNameOrNullByVertex(network.getSource(j)) + " -> "
+						+ network.getNameOrNullByVertex(network.getDest(j))
+						+ "		capacity : " + capacity(snapshot.getCapacity(j)) + " -> " + capacity(network.getCapacity(j))
+						+ "		flow : " + snapshot.getFlowValue(j) + " -> " + network.getFlowValue(j)
+						+ (inCut == inSnapshotCut ? "" : inCut ? "		now in the cut" : "		no longer in the cut"));
+			}
 		}
 	}
 }
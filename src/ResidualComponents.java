@@ -0,0 +1,132 @@
+// strongly connected components of the residual graph of a flow : u and v are in the same component when
+// each can reach the other through arcs with residual capacity left (see FlowGraph.arc). For a maximum
+// flow this says where the minimum cuts can go (Picard and Queyranne) : a saturated edge u -> v is in
+// some minimum cut exactly when u and v are in different components that the terminals do not force to
+// the wrong side (see sourceSide and sinkSide), and every minimum cut keeps each component on one side.
+// Tarjan's algorithm without recursion, so a long chain of stations does not overflow the stack. The
+// components are numbered in the order Tarjan completes them, which is a reverse topological order : an
+// arc between two components always goes from a higher number to a lower one.
+
+class ResidualComponents {
+
+	final int[] component; // by vertex
+	final int count;
+
+	ResidualComponents(FlowGraph graph) {
+		graph.index();
+		int n = graph.vertexCount;
+		component = new int[n];
+		int[] index = new int[n]; // 0 while not visited, the visit order + 1 after
+		int[] low = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int top = 0;
+		int[] path = new int[n]; // the depth first path, with the next arc to follow of each vertex
+		int[] nextArc = new int[n];
+		int visits = 0;
+		int found = 0;
+		for (int root = 0; root < n; root++) {
+			if (index[root] != 0) {
+				continue;
+			}
+			int depth = 0;
+			path[depth++] = root;
+			index[root] = low[root] = ++visits;
+			stack[top++] = root;
+			onStack[root] = true;
+			nextArc[root] = 0;
+			while (depth > 0) {
+				int u = path[depth - 1];
+				if (nextArc[u] < graph.arcCount(u)) {
+					int link = graph.arc(u, nextArc[u]++);
+					if (graph.arcResidual(link) <= 0) {
+						continue;
+					}
+					int v = graph.arcHead(link);
+					if (index[v] == 0) {
+						index[v] = low[v] = ++visits;
+						stack[top++] = v;
+						onStack[v] = true;
+						nextArc[v] = 0;
+						path[depth++] = v;
+					} else if (onStack[v]) {
+						low[u] = Math.min(low[u], index[v]);
+					}
+				} else {
+					depth--;
+					if (depth > 0) {
+						int parent = path[depth - 1];
+						low[parent] = Math.min(low[parent], low[u]);
+					}
+					if (low[u] == index[u]) {
+						int v;
+						do {
+							v = stack[--top];
+							onStack[v] = false;
+							component[v] = found;
+						} while (v != u);
+						found++;
+					}
+				}
+			}
+		}
+		count = found;
+	}
+
+	// by component, whether one of these sources reaches it through residual arcs : those components are on
+	// the side of the sources in every minimum cut. Arcs only go to lower numbers, so the components are
+	// visited once, from the highest.
+	boolean[] sourceSide(FlowGraph graph, int[] sources) {
+		boolean[] side = new boolean[count];
+		for (int s : sources) {
+			side[component[s]] = true;
+		}
+		int[] members = members();
+		for (int i = members.length - 1; i >= 0; i--) {
+			int u = members[i];
+			if (side[component[u]]) {
+				for (int k = 0; k < graph.arcCount(u); k++) {
+					int link = graph.arc(u, k);
+					if (graph.arcResidual(link) > 0) {
+						side[component[graph.arcHead(link)]] = true;
+					}
+				}
+			}
+		}
+		return side;
+	}
+
+	// by component, whether it reaches one of these sinks through residual arcs : those components are on
+	// the side of the sinks in every minimum cut. Visited from the lowest component.
+	boolean[] sinkSide(FlowGraph graph, int[] sinks) {
+		boolean[] side = new boolean[count];
+		for (int t : sinks) {
+			side[component[t]] = true;
+		}
+		for (int u : members()) {
+			for (int k = 0; k < graph.arcCount(u) && !side[component[u]]; k++) {
+				int link = graph.arc(u, k);
+				if (graph.arcResidual(link) > 0 && side[component[graph.arcHead(link)]]) {
+					side[component[u]] = true;
+				}
+			}
+		}
+		return side;
+	}
+
+	// the vertices sorted by component
+	private int[] members() {
+		int[] start = new int[count + 1];
+		for (int c : component) {
+			start[c + 1]++;
+		}
+		for (int c = 0; c < count; c++) {
+			start[c + 1] += start[c];
+		}
+		int[] members = new int[component.length];
+		for (int u = 0; u < component.length; u++) {
+			members[start[component[u]]++] = u;
+		}
+		return members;
+	}
+}
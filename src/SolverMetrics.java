@@ -0,0 +1,213 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// counters of what the max flow code does : breadth first searches (vertices visited, edges scanned),
+// augmentations and their bottlenecks, time spent loading, solving and cutting, and the peak heap. The
+// counters are shared by every network and every thread of the program (LongAdder, so the batch workers do
+// not fight over them). The peak heap is not sampled : the JVM tracks the peak of every memory pool
+// itself, it is reset when the metrics are turned on or reset and read when asked for. It is the sum of
+// the peaks of the heap pools, which need not have peaked at the same time, so it can be a bit above the
+// real peak but never misses one that happened in the middle of a phase.
+// Everything is off unless setEnabled(true) was called (--stats does it). The hot loops only count in
+// local variables and hand their totals over once per search or per augmentation, and each record
+// method starts by checking the flag, so a disabled run pays one branch per search, not per edge.
+
+public class SolverMetrics implements SolverMetricsMXBean {
+
+	public enum Phase {
+		LOAD, SOLVE, CUT
+	}
+
+	private static final SolverMetrics INSTANCE = new SolverMetrics();
+	private static final int BUCKETS = 32;
+
+	private static volatile boolean enabled = false;
+
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder verticesVisited = new LongAdder();
+	private final LongAdder edgesScanned = new LongAdder();
+	private final LongAdder augmentations = new LongAdder();
+	private final AtomicLongArray bottlenecks = new AtomicLongArray(BUCKETS);
+	private final LongAdder[] phaseCounts = new LongAdder[Phase.values().length];
+	private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+	private SolverMetrics() {
+		for (int i = 0; i < phaseCounts.length; i++) {
+			phaseCounts[i] = new LongAdder();
+			phaseNanos[i] = new LongAdder();
+		}
+	}
+
+	public static SolverMetrics get() {
+		return INSTANCE;
+	}
+
+	public static boolean enabled() {
+		return enabled;
+	}
+
+	// makes the counters visible to JMX clients, registering twice does nothing
+	public static void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+					new ObjectName("RailNetwork:type=SolverMetrics"));
+		} catch (InstanceAlreadyExistsException e) {
+			// already there
+		} catch (JMException e) {
+			throw new IllegalStateException("cannot register the solver metrics", e);
+		}
+	}
+
+	public static void search(int visited, long scanned) {
+		if (enabled) {
+			INSTANCE.searches.increment();
+			INSTANCE.verticesVisited.add(visited);
+			INSTANCE.edgesScanned.add(scanned);
+		}
+	}
+
+	public static void augmentation(long bottleNeck) {
+		if (enabled) {
+			INSTANCE.augmentations.increment();
+			INSTANCE.bottlenecks.incrementAndGet(bucket(bottleNeck));
+		}
+	}
+
+	public static void phase(Phase phase, long nanos) {
+		if (enabled) {
+			INSTANCE.phaseCounts[phase.ordinal()].increment();
+			INSTANCE.phaseNanos[phase.ordinal()].add(nanos);
+		}
+	}
+
+	private static int bucket(long value) {
+		return value <= 1 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(value));
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		if (enabled && !SolverMetrics.enabled) {
+			resetPeakHeap();
+		}
+		SolverMetrics.enabled = enabled;
+	}
+
+	public long getSearches() {
+		return searches.sum();
+	}
+
+	public long getVerticesVisited() {
+		return verticesVisited.sum();
+	}
+
+	public long getEdgesScanned() {
+		return edgesScanned.sum();
+	}
+
+	public long getAugmentations() {
+		return augmentations.sum();
+	}
+
+	public long[] getBottleneckHistogram() {
+		long[] histogram = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = bottlenecks.get(i);
+		}
+		return histogram;
+	}
+
+	public long getLoads() {
+		return phaseCounts[Phase.LOAD.ordinal()].sum();
+	}
+
+	public double getLoadMillis() {
+		return millis(Phase.LOAD);
+	}
+
+	public long getSolves() {
+		return phaseCounts[Phase.SOLVE.ordinal()].sum();
+	}
+
+	public double getSolveMillis() {
+		return millis(Phase.SOLVE);
+	}
+
+	public long getCuts() {
+		return phaseCounts[Phase.CUT.ordinal()].sum();
+	}
+
+	public double getCutMillis() {
+		return millis(Phase.CUT);
+	}
+
+	// since the metrics were turned on or reset
+	public long getPeakHeapBytes() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private double millis(Phase phase) {
+		return Math.round(phaseNanos[phase.ordinal()].sum() / 1e4) / 100.0;
+	}
+
+	// everything on one JSON line, the histogram keyed by the lower bound of each non empty bucket
+	public String getSummary() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"searches\":").append(getSearches());
+		json.append(",\"verticesVisited\":").append(getVerticesVisited());
+		json.append(",\"edgesScanned\":").append(getEdgesScanned());
+		json.append(",\"augmentations\":").append(getAugmentations());
+		json.append(",\"bottlenecks\":{");
+		boolean first = true;
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = bottlenecks.get(i);
+			if (count > 0) {
+				json.append(first ? "\"" : ",\"").append(i == 0 ? 0 : 1L << i).append("\":").append(count);
+				first = false;
+			}
+		}
+		json.append("},\"loads\":").append(getLoads()).append(",\"loadMillis\":").append(getLoadMillis());
+		json.append(",\"solves\":").append(getSolves()).append(",\"solveMillis\":").append(getSolveMillis());
+		json.append(",\"cuts\":").append(getCuts()).append(",\"cutMillis\":").append(getCutMillis());
+		json.append(",\"peakHeapBytes\":").append(getPeakHeapBytes()).append('}');
+		return json.toString();
+	}
+
+	public void reset() {
+		searches.reset();
+		verticesVisited.reset();
+		edgesScanned.reset();
+		augmentations.reset();
+		for (int i = 0; i < BUCKETS; i++) {
+			bottlenecks.set(i, 0);
+		}
+		for (int i = 0; i < phaseCounts.length; i++) {
+			phaseCounts[i].reset();
+			phaseNanos[i].reset();
+		}
+		resetPeakHeap();
+	}
+}
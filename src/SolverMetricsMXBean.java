@@ -0,0 +1,39 @@
+// management interface of SolverMetrics, as seen from jconsole or any other JMX client under
+// RailNetwork:type=SolverMetrics. Times are in milliseconds, memory in bytes.
+
+public interface SolverMetricsMXBean {
+
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	public long getSearches();
+
+	public long getVerticesVisited();
+
+	public long getEdgesScanned();
+
+	public long getAugmentations();
+
+	// augmentations by bottleneck : entry i counts the bottlenecks from 2^i to 2^(i + 1) - 1 (0 included
+	// in the first one)
+	public long[] getBottleneckHistogram();
+
+	public long getLoads();
+
+	public double getLoadMillis();
+
+	public long getSolves();
+
+	public double getSolveMillis();
+
+	public long getCuts();
+
+	public double getCutMillis();
+
+	public long getPeakHeapBytes();
+
+	public String getSummary();
+
+	public void reset();
+}
@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// uniform grid over the stations of a network, in the coordinates the game draws them at (x / xmax,
+// 1 - y / ymax, so the map fits in [0, 1] x [0, 1]). The map is cut into about one cell per station and
+// every cell lists the stations inside it and the rails that cross it, in compressed sparse row form like
+// FlowGraph : the stations of cell c are cellStations[stationStart[c]] ...
+// cellStations[stationStart[c + 1] - 1]. A click then looks at the few cells around it instead of
+// every station, and drawing can ask for what lies in the visible part of the map only. A rail is listed
+// in the cells its segment goes through only, found row by row, so a long diagonal rail takes about
+// 2 * side cells and not the side * side of its bounding box.
+// The index is built once, the stations do not move.
+
+public class StationIndex {
+
+	private final Node[] stations; // by slot, the order of network.getVertices()
+	private final double[] x;
+	private final double[] y;
+	private final int[] railIds;
+	private final int[] railTail; // slots of the ends of the rails, by index in railIds
+	private final int[] railHead;
+	private final int side; // the grid has side * side cells
+	private final int[] stationStart;
+	private final int[] cellStations; // slots
+	private final int[] railStart;
+	private final int[] cellRails; // indexes in railIds
+	private final int[] seen; // railsIn marks the rails it already returned, seen[i] == query
+	private int query = 0;
+
+	public StationIndex(Network<Node, Integer> network, double xmax, double ymax) {
+		int n = network.getVertices().size();
+		stations = network.getVertices().toArray(new Node[n]);
+		x = new double[n];
+		y = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = stations[i].x / xmax;
+			y[i] = 1 - stations[i].y / ymax;
+		}
+		side = Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+
+		// counting sort of the stations by cell
+		stationStart = new int[side * side + 1];
+		for (int i = 0; i < n; i++) {
+			stationStart[cell(x[i], y[i]) + 1]++;
+		}
+		for (int c = 0; c < side * side; c++) {
+			stationStart[c + 1] += stationStart[c];
+		}
+		cellStations = new int[n];
+		int[] next = Arrays.copyOf(stationStart, side * side);
+		for (int i = 0; i < n; i++) {
+			cellStations[next[cell(x[i], y[i])]++] = i;
+		}
+
+		// the same for the rails, once in every cell they cross
+		int[] slot = new int[maxId(stations) + 1];
+		for (int i = 0; i < n; i++) {
+			slot[stations[i].id] = i;
+		}
+		ArrayList<Integer> edges = new ArrayList<Integer>(network.getEdges());
+		railIds = new int[edges.size()];
+		railTail = new int[edges.size()];
+		railHead = new int[edges.size()];
+		railStart = new int[side * side + 1];
+		for (int r = 0; r < railIds.length; r++) {
+			int e = edges.get(r);
+			railIds[r] = e;
+			railTail[r] = slot[network.getSource(e).id];
+			railHead[r] = slot[network.getDest(e).id];
+			cover(r, railStart, null);
+		}
+		for (int c = 0; c < side * side; c++) {
+			railStart[c + 1] += railStart[c];
+		}
+		cellRails = new int[railStart[side * side]];
+		next = Arrays.copyOf(railStart, side * side);
+		for (int r = 0; r < railIds.length; r++) {
+			cover(r, next, cellRails);
+		}
+		seen = new int[railIds.length];
+	}
+
+	// the station closest to (px, py) among those less than tolerance away on both axes, null if there
+	// is none
+	public Node nearest(double px, double py, double tolerance) {
+		Node best = null;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		int i0 = column(px - tolerance), i1 = column(px + tolerance);
+		int j0 = row(py - tolerance), j1 = row(py + tolerance);
+		for (int j = j0; j <= j1; j++) {
+			for (int i = i0; i <= i1; i++) {
+				int c = j * side + i;
+				for (int k = stationStart[c]; k < stationStart[c + 1]; k++) {
+					int s = cellStations[k];
+					double dx = x[s] - px;
+					double dy = y[s] - py;
+					if (Math.abs(dx) < tolerance && Math.abs(dy) < tolerance && dx * dx + dy * dy < bestDistance) {
+						best = stations[s];
+						bestDistance = dx * dx + dy * dy;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	// the stations inside the rectangle
+	public List<Node> stationsIn(double minX, double minY, double maxX, double maxY) {
+		ArrayList<Node> found = new ArrayList<Node>();
+		for (int j = row(minY); j <= row(maxY); j++) {
+			for (int i = column(minX); i <= column(maxX); i++) {
+				int c = j * side + i;
+				for (int k = stationStart[c]; k < stationStart[c + 1]; k++) {
+					int s = cellStations[k];
+					if (x[s] >= minX && x[s] <= maxX && y[s] >= minY && y[s] <= maxY) {
+						found.add(stations[s]);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	// the rails that cross the rectangle, each once (a rail can cross it without either end in it)
+	public List<Integer> railsIn(double minX, double minY, double maxX, double maxY) {
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		if (++query == 0) { // the marks wrapped around, old marks could look current
+			Arrays.fill(seen, 0);
+			query = 1;
+		}
+		for (int j = row(minY); j <= row(maxY); j++) {
+			for (int i = column(minX); i <= column(maxX); i++) {
+				int c = j * side + i;
+				for (int k = railStart[c]; k < railStart[c + 1]; k++) {
+					int r = cellRails[k];
+					if (seen[r] != query) {
+						seen[r] = query;
+						if (crosses(r, minX, minY, maxX, maxY)) {
+							found.add(railIds[r]);
+						}
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	// the cells rail r goes through, row by row : in each row the segment spans the columns between where
+	// it enters and leaves the row. Without cells the row is counted in start (start[c + 1] is the number
+	// of rails of cell c), otherwise r is written in cells at the positions start gives.
+	private void cover(int r, int[] start, int[] cells) {
+		double ax = x[railTail[r]], ay = y[railTail[r]];
+		double bx = x[railHead[r]], by = y[railHead[r]];
+		if (ay > by) { // go up
+			double t = ax;
+			ax = bx;
+			bx = t;
+			t = ay;
+			ay = by;
+			by = t;
+		}
+		int j0 = row(ay), j1 = row(by);
+		for (int j = j0; j <= j1; j++) {
+			// the part of the segment inside the row, the first and last rows hold everything beyond the grid
+			double low = j == j0 ? ay : (double) j / side;
+			double high = j == j1 ? by : (double) (j + 1) / side;
+			double lowX = j == j0 ? ax : ax + (bx - ax) * (low - ay) / (by - ay);
+			double highX = j == j1 ? bx : ax + (bx - ax) * (high - ay) / (by - ay);
+			for (int i = column(Math.min(lowX, highX)); i <= column(Math.max(lowX, highX)); i++) {
+				if (cells == null) {
+					start[j * side + i + 1]++;
+				} else {
+					cells[start[j * side + i]++] = r;
+				}
+			}
+		}
+	}
+
+	// whether the segment of rail r meets the rectangle : their bounding boxes overlap and the corners of
+	// the rectangle are not all strictly on the same side of the rail's line
+	private boolean crosses(int r, double minX, double minY, double maxX, double maxY) {
+		double ax = x[railTail[r]], ay = y[railTail[r]];
+		double bx = x[railHead[r]], by = y[railHead[r]];
+		if (Math.max(ax, bx) < minX || Math.min(ax, bx) > maxX || Math.max(ay, by) < minY
+				|| Math.min(ay, by) > maxY) {
+			return false;
+		}
+		double dx = bx - ax, dy = by - ay;
+		double s0 = dx * (minY - ay) - dy * (minX - ax);
+		double s1 = dx * (minY - ay) - dy * (maxX - ax);
+		double s2 = dx * (maxY - ay) - dy * (minX - ax);
+		double s3 = dx * (maxY - ay) - dy * (maxX - ax);
+		return !(s0 > 0 && s1 > 0 && s2 > 0 && s3 > 0) && !(s0 < 0 && s1 < 0 && s2 < 0 && s3 < 0);
+	}
+
+	// cells clamp to the grid : a station outside [0, 1] goes to the border cells
+	private int column(double px) {
+		return Math.min(side - 1, Math.max(0, (int) (px * side)));
+	}
+
+	private int row(double py) {
+		return Math.min(side - 1, Math.max(0, (int) (py * side)));
+	}
+
+	private int cell(double px, double py) {
+		return row(py) * side + column(px);
+	}
+
+	private static int maxId(Node[] stations) {
+		int max = -1;
+		for (Node v : stations) {
+			max = Math.max(max, v.id);
+		}
+		return max;
+	}
+}
@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+// the sources and sinks of a network (see Network.setTerminals), kept as vertices and handed to the
+// solvers as registry ids. Until they are set, the source is the vertex named "Source" and the sink the
+// vertex named "Sink", looked up every time since names can be given after the terminals are needed.
+
+class Terminals<Vertex> {
+
+	private final VertexRegistry<Vertex> registry;
+	private ArrayList<Vertex> sources = null;
+	private ArrayList<Vertex> sinks = null;
+
+	Terminals(VertexRegistry<Vertex> registry) {
+		this.registry = registry;
+	}
+
+	public void set(Collection<Vertex> sources, Collection<Vertex> sinks) {
+		if (sources.isEmpty() || sinks.isEmpty()) {
+			throw new IllegalArgumentException("a network needs at least one source and one sink");
+		}
+		HashSet<Vertex> sourceSet = new HashSet<Vertex>(sources);
+		HashSet<Vertex> sinkSet = new HashSet<Vertex>(sinks);
+		for (Vertex v : sinkSet) {
+			if (sourceSet.contains(v)) {
+				throw new IllegalArgumentException(describe(v) + " cannot be both a source and a sink");
+			}
+		}
+		for (Vertex v : sourceSet) {
+			requireKnown(v);
+		}
+		for (Vertex v : sinkSet) {
+			requireKnown(v);
+		}
+		this.sources = new ArrayList<Vertex>(sourceSet);
+		this.sinks = new ArrayList<Vertex>(sinkSet);
+	}
+
+	private void requireKnown(Vertex v) {
+		if (!registry.contains(v)) {
+			throw new IllegalArgumentException(describe(v) + " is not in the network");
+		}
+	}
+
+	private String describe(Vertex v) {
+		String name = registry.contains(v) ? registry.nameOf(v) : null;
+		return name != null ? "station " + name : "vertex " + v;
+	}
+
+	public Collection<Vertex> sources() {
+		return sources != null ? Collections.unmodifiableList(sources) : byName("Source");
+	}
+
+	public Collection<Vertex> sinks() {
+		return sinks != null ? Collections.unmodifiableList(sinks) : byName("Sink");
+	}
+
+	private Collection<Vertex> byName(String name) {
+		Vertex v = registry.byName(name);
+		return v == null ? Collections.<Vertex>emptyList() : Collections.singletonList(v);
+	}
+
+	public int[] sourceIds() {
+		return ids(sources(), "Source");
+	}
+
+	public int[] sinkIds() {
+		return ids(sinks(), "Sink");
+	}
+
+	private int[] ids(Collection<Vertex> vertices, String defaultName) {
+		if (vertices.isEmpty()) {
+			throw new IllegalStateException("no vertex is named " + defaultName + " and no terminals were set");
+		}
+		int[] ids = new int[vertices.size()];
+		int i = 0;
+		for (Vertex v : vertices) {
+			ids[i++] = registry.idOf(v);
+		}
+		return ids;
+	}
+}
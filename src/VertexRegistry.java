@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// two way mapping between vertices, their dense int ids and their names. Vertices are interned in the
+// order they are added (ids 0, 1, 2, ...) which is also the order Game numbers its Nodes in, so a
+// Node's id is its index here. Looking a name up from a vertex or from an id never scans anything :
+// the reverse direction is kept in vertexToName and idToName next to nameToVertex.
+
+public class VertexRegistry<Vertex> {
+
+	private Map<Vertex, Integer> vertexToId = new HashMap<Vertex, Integer>();
+	private ArrayList<Vertex> idToVertex = new ArrayList<Vertex>();
+	private ArrayList<String> idToName = new ArrayList<String>();
+	private Map<String, Vertex> nameToVertex = new HashMap<String, Vertex>();
+	private Map<Vertex, String> vertexToName = new HashMap<Vertex, String>();
+
+	// returns the id of the vertex, giving it the next free id if it is new
+	public int intern(Vertex v) {
+		Integer id = vertexToId.get(v);
+		if (id != null) {
+			return id;
+		}
+		id = idToVertex.size();
+		vertexToId.put(v, id);
+		idToVertex.add(v);
+		idToName.add(vertexToName.get(v));
+		return id;
+	}
+
+	public boolean contains(Vertex v) {
+		return vertexToId.containsKey(v);
+	}
+
+	// -1 if the vertex was never interned
+	public int idOf(Vertex v) {
+		Integer id = vertexToId.get(v);
+		return id == null ? -1 : id;
+	}
+
+	public Vertex vertex(int id) {
+		return idToVertex.get(id);
+	}
+
+	public int size() {
+		return idToVertex.size();
+	}
+
+	public List<Vertex> vertices() {
+		return Collections.unmodifiableList(idToVertex);
+	}
+
+	// a name points to a single vertex and a vertex has a single name : naming again replaces the
+	// previous association on both sides
+	public void name(String name, Vertex v) {
+		Vertex previousVertex = nameToVertex.put(name, v);
+		if (previousVertex != null && !previousVertex.equals(v)) {
+			setName(previousVertex, null);
+		}
+		String previousName = vertexToName.get(v);
+		if (previousName != null && !previousName.equals(name)) {
+			nameToVertex.remove(previousName);
+		}
+		setName(v, name);
+	}
+
+	private void setName(Vertex v, String name) {
+		if (name == null) {
+			vertexToName.remove(v);
+		} else {
+			vertexToName.put(v, name);
+		}
+		Integer id = vertexToId.get(v);
+		if (id != null) {
+			idToName.set(id, name);
+		}
+	}
+
+	public Vertex byName(String name) {
+		return nameToVertex.get(name);
+	}
+
+	// -1 if no vertex has this name or if it was never interned
+	public int idByName(String name) {
+		Vertex v = nameToVertex.get(name);
+		return v == null ? -1 : idOf(v);
+	}
+
+	public String nameOf(Vertex v) {
+		return vertexToName.get(v);
+	}
+
+	public String nameOf(int id) {
+		return idToName.get(id);
+	}
+
+	public Collection<String> names() {
+		return Collections.unmodifiableCollection(nameToVertex.keySet());
+	}
+}